@@ -0,0 +1,43 @@
+package quiz.meal.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+
+/**
+ * Menus and baskets for the benchmarks.
+ *
+ * "food.yml" is the shipped menu. "synthetic-N" is a menu of N mains made by
+ * MenuGenerator.
+ */
+public class BenchmarkMenus {
+    public static final String FOOD_YML = "food.yml";
+    public static final String SYNTHETIC = "synthetic-";
+
+    public static Menu createMenu(String name) {
+        if (FOOD_YML.equals(name)) {
+            return new SimpleMenu();
+        } else if (name.startsWith(SYNTHETIC)) {
+            int mains = Integer.parseInt(name.substring(SYNTHETIC.length()));
+            return new MenuGenerator(mains).generateMenu(mains);
+        }
+        throw new IllegalArgumentException("unknown menu: " + name);
+    }
+
+    /**
+     * Random baskets of the menu food, made by BasketGenerator.
+     */
+    public static List<Item[]> createBaskets(Menu menu, int basketSize, int count, long seed) {
+        BasketGenerator generator = new BasketGenerator(menu, seed);
+        List<Item[]> baskets = new ArrayList<Item[]>();
+        for (int i = 0; i < count; i++) {
+            baskets.add(generator.randomBasket(basketSize));
+        }
+        return baskets;
+    }
+}
@@ -0,0 +1,64 @@
+package quiz.meal.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import quiz.meal.Menu;
+import quiz.meal.OrderMaker;
+import quiz.meal.model.Item;
+import quiz.meal.spi.OrderMakerFactory;
+
+/**
+ * Throughput and latency of one order() call for each order maker, over a set
+ * of random baskets. Run with "ant bench", which adds the gc profiler for the
+ * allocation rate. The order makers are made by OrderMakerFactory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMakerBenchmark {
+    private static final int BASKETS = 64;
+    private static final OrderMakerFactory FACTORY = new OrderMakerFactory();
+
+    @Param({ "naive", "plain", "tree", "tree-bounded", "tree-parallel", "tree-symmetric", "tree-decomposed", "cs", "cs-sparse", "dp", "ilp" })
+    private String maker;
+
+    @Param({ BenchmarkMenus.FOOD_YML, "synthetic-50" })
+    private String menuName;
+
+    @Param({ "3", "6", "9" })
+    private int basketSize;
+
+    private OrderMaker orderMaker;
+    private List<Item[]> baskets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Menu menu = BenchmarkMenus.createMenu(menuName);
+        orderMaker = FACTORY.create(maker, menu);
+        baskets = BenchmarkMenus.createBaskets(menu, basketSize, BASKETS, 42);
+    }
+
+    @Benchmark
+    public List<Item> order() {
+        Item[] basket = baskets.get(next);
+        next = (next + 1) % BASKETS;
+        return orderMaker.order(basket);
+    }
+}
@@ -0,0 +1,162 @@
+package quiz.meal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import quiz.meal.metrics.MetricsListener;
+import quiz.meal.model.Item;
+
+/**
+ * Batch ordering for order makers.
+ * 
+ * orderAll() removes duplicated baskets, asks prepareBatch() for an order maker
+ * sharing whatever it can across the batch, then orders the distinct baskets in
+ * parallel on a fork-join pool. Subclasses must be safe to call from many threads.
+ * 
+ * Order makers report what they did for each order to the metrics listener, if
+ * one is set.
+ * 
+ * @author siuying
+ */
+public abstract class AbstractOrderMaker implements OrderMaker {
+    private static ForkJoinPool defaultPool;
+
+    private ForkJoinPool pool;
+    private volatile MetricsListener metrics;
+
+    @Override
+    public List<List<Item>> orderAll(List<Item[]> wantedItems) {
+        // find the distinct baskets, and which of them each basket is
+        Map<String, Integer> basketIndex = new HashMap<String, Integer>();
+        List<Item[]> baskets = new ArrayList<Item[]>();
+        int[] basketOf = new int[wantedItems.size()];
+        for (int i = 0; i < basketOf.length; i++) {
+            Item[] basket = wantedItems.get(i);
+            String key = OrderHelper.getBasketKey(Arrays.asList(basket));
+            Integer index = basketIndex.get(key);
+            if (index == null) {
+                index = baskets.size();
+                basketIndex.put(key, index);
+                baskets.add(basket);
+            }
+            basketOf[i] = index;
+        }
+
+        OrderMaker batchMaker = prepareBatch(baskets);
+        List<List<Item>> orders = orderInParallel(batchMaker, baskets);
+
+        // every duplicated basket gets its own copy of the order
+        List<List<Item>> result = new ArrayList<List<Item>>(basketOf.length);
+        boolean[] used = new boolean[orders.size()];
+        for (int b : basketOf) {
+            result.add(used[b] ? new ArrayList<Item>(orders.get(b)) : orders.get(b));
+            used[b] = true;
+        }
+        return result;
+    }
+
+    /**
+     * @return a session ordering the whole basket again after every change,
+     * unless the order maker has something better
+     */
+    @Override
+    public OrderSession openSession() {
+        return new SimpleOrderSession(this);
+    }
+
+    /**
+     * Prepare for ordering a batch of distinct baskets, sharing the work common to
+     * them. The returned order maker is called from many threads at once.
+     * 
+     * @param baskets distinct wanted items of the batch
+     * @return the order maker for the batch, this order maker by default
+     */
+    protected OrderMaker prepareBatch(List<Item[]> baskets) {
+        return this;
+    }
+
+    /**
+     * @return the fork-join pool running orderAll()
+     */
+    public ForkJoinPool getPool() {
+        if (pool != null) {
+            return pool;
+        }
+
+        synchronized (AbstractOrderMaker.class) {
+            if (defaultPool == null) {
+                defaultPool = new ForkJoinPool();
+            }
+            return defaultPool;
+        }
+    }
+
+    /**
+     * @param pool the fork-join pool running orderAll(), or null for a pool shared
+     * by all order makers
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return the metrics listener, or null
+     */
+    public MetricsListener getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics listener told about every order, or null for none
+     */
+    public void setMetrics(MetricsListener metrics) {
+        this.metrics = metrics;
+    }
+
+    private List<List<Item>> orderInParallel(OrderMaker batchMaker, List<Item[]> baskets) {
+        // filled in place by the tasks, each setting its own index
+        List<List<Item>> orders = new ArrayList<List<Item>>(Collections.<List<Item>> nCopies(baskets.size(), null));
+        if (!baskets.isEmpty()) {
+            getPool().invoke(new OrderTask(batchMaker, baskets, orders, 0, orders.size()));
+        }
+        return orders;
+    }
+
+    /**
+     * Order baskets[from..to), splitting the range in halves until one basket is left.
+     */
+    private static class OrderTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final OrderMaker orderMaker;
+        private final List<Item[]> baskets;
+        private final List<List<Item>> orders;
+        private final int from;
+        private final int to;
+
+        public OrderTask(OrderMaker orderMaker, List<Item[]> baskets, List<List<Item>> orders, int from, int to) {
+            this.orderMaker = orderMaker;
+            this.baskets = baskets;
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                orders.set(from, orderMaker.order(baskets.get(from)));
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new OrderTask(orderMaker, baskets, orders, from, middle),
+                        new OrderTask(orderMaker, baskets, orders, middle, to));
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ package quiz.meal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -71,6 +72,26 @@ public abstract class AbstractOrderMakerTest {
         }        
     }
     
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOrderAll() {
+        List<List<List<String>>> list = (List<List<List<String>>>) Yaml.load(OrderMaker.class.getResourceAsStream("testcase.yml"));
+        List<Item[]> baskets = new ArrayList<Item[]>();
+        for (int i = 0; i < 3; i++) {
+            for(List<List<String>> testLists : list) {
+                baskets.add(getSimpleMenu().getItems(testLists.get(0).toArray(new String[0])).toArray(new Item[0]));
+            }
+        }
+
+        List<List<Item>> orders = maker.orderAll(baskets);
+        assertEquals(baskets.size(), orders.size());
+        for (int i = 0; i < baskets.size(); i++) {
+            List<Item> expectedItems = maker.order(baskets.get(i));
+            assertEquals("not same price as order() for " + baskets.get(i), 
+                    getSimpleMenu().getOrderPriceCents(expectedItems), getSimpleMenu().getOrderPriceCents(orders.get(i)));
+        }
+    }
+    
     private void baseOrderTest(List<Item> wantedItems, List<Item> expectedItems) {
         log.info("testing " + wantedItems);
         List<Item> orderItems = maker.order(wantedItems.toArray(new Item[0]));
@@ -78,7 +99,7 @@ public abstract class AbstractOrderMakerTest {
         log.info("   result:  " + orderItems);
         
         assertTrue("missing wanted items in " + wantedItems, validateOrder(expectedItems, orderItems));
-        assertEquals("not minimum price for " + wantedItems, getSimpleMenu().getOrderPrice(expectedItems), getSimpleMenu().getOrderPrice(orderItems), 0.01);
+        assertEquals("not minimum price for " + wantedItems, getSimpleMenu().getOrderPriceCents(expectedItems), getSimpleMenu().getOrderPriceCents(orderItems));
     }
     
     private boolean validateOrder(List<Item> wantedItems, List<Item> orderItems) {
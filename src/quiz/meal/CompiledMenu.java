@@ -0,0 +1,218 @@
+package quiz.meal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * Dense, integer indexed view of a menu for the order makers.
+ *
+ * Every food gets an ordinal, and every meal is stored as a count vector over
+ * the food ordinals, kept sparse as its distinct ordinals and their counts since
+ * a meal only holds a few foods. Prices are kept in cents. Foods and meals are
+ * ordered by name, so the same menu always compiles to the same ordinals.
+ *
+ * A CompiledMenu is immutable once built and can be shared by any number of
+ * order makers and threads. The arrays returned by its getters are the
+ * internal ones and must not be modified.
+ *
+ * @author siuying
+ */
+public class CompiledMenu {
+    private final Menu menu;
+
+    private final Food[] foods;
+    private final long[] foodPrice;
+    private final Map<Food, Integer> foodOrdinal;
+
+    private final Meal[] meals;
+    private final long[] mealPrice;
+    private final long[] mealSaving;
+    // distinct food ordinals of a meal, and how many of each it contains
+    private final int[][] mealFood;
+    private final int[][] mealFoodNeed;
+    // ordinals of the meals containing each food
+    private final int[][] foodMeals;
+
+    public CompiledMenu(Menu menu) {
+        this.menu = menu;
+
+        List<Food> foodList = new ArrayList<Food>();
+        List<Meal> mealList = new ArrayList<Meal>();
+        for (Item item : menu.getAllItems().values()) {
+            if (item instanceof Food) {
+                foodList.add((Food) item);
+            } else if (item instanceof Meal) {
+                mealList.add((Meal) item);
+            }
+        }
+        Collections.sort(foodList, BY_NAME);
+        Collections.sort(mealList, BY_NAME);
+
+        foods = foodList.toArray(new Food[foodList.size()]);
+        foodPrice = new long[foods.length];
+        foodOrdinal = new HashMap<Food, Integer>();
+        for (int f = 0; f < foods.length; f++) {
+            foodPrice[f] = foods[f].getPriceCents();
+            foodOrdinal.put(foods[f], f);
+        }
+
+        meals = mealList.toArray(new Meal[mealList.size()]);
+        mealPrice = new long[meals.length];
+        mealSaving = new long[meals.length];
+        mealFood = new int[meals.length][];
+        mealFoodNeed = new int[meals.length][];
+        int[] mealsWithFood = new int[foods.length];
+        for (int m = 0; m < meals.length; m++) {
+            mealPrice[m] = meals[m].getPriceCents();
+
+            // sort the food ordinals, then count the runs of equal ordinals
+            List<Food> food = meals[m].getFood();
+            int[] ordinals = new int[food.size()];
+            int distinct = 0;
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = getFoodOrdinal(food.get(i));
+            }
+            Arrays.sort(ordinals);
+            for (int i = 0; i < ordinals.length; i++) {
+                if (i == 0 || ordinals[i] != ordinals[i - 1]) {
+                    distinct++;
+                }
+            }
+
+            mealFood[m] = new int[distinct];
+            mealFoodNeed[m] = new int[distinct];
+            int d = -1;
+            for (int i = 0; i < ordinals.length; i++) {
+                int f = ordinals[i];
+                if (i == 0 || f != ordinals[i - 1]) {
+                    mealFood[m][++d] = f;
+                    mealsWithFood[f]++;
+                }
+                mealFoodNeed[m][d]++;
+                mealSaving[m] += foodPrice[f];
+            }
+            mealSaving[m] -= mealPrice[m];
+        }
+
+        foodMeals = new int[foods.length][];
+        for (int f = 0; f < foods.length; f++) {
+            foodMeals[f] = new int[mealsWithFood[f]];
+            mealsWithFood[f] = 0;
+        }
+        for (int m = 0; m < meals.length; m++) {
+            for (int f : mealFood[m]) {
+                foodMeals[f][mealsWithFood[f]++] = m;
+            }
+        }
+    }
+
+    /**
+     * Count the food represented by the items, by food ordinal. Meals are
+     * counted as the food inside them.
+     *
+     * @param items order items, could be Food or Meal
+     * @return the count of each food ordinal
+     */
+    public int[] getFoodCount(List<? extends Item> items) {
+        int[] count = new int[foods.length];
+        for (Food food : OrderHelper.getItemAsFoodList(items)) {
+            count[getFoodOrdinal(food)]++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the ordinal of the food
+     * @throws IllegalArgumentException if the food is not on the menu
+     */
+    public int getFoodOrdinal(Food food) {
+        int f = findFoodOrdinal(food);
+        if (f < 0) {
+            throw new IllegalArgumentException("Sorry no such item on menu, please try others!");
+        }
+        return f;
+    }
+
+    /**
+     * @return the ordinal of the food, or -1 if the food is not on the menu
+     */
+    public int findFoodOrdinal(Food food) {
+        Integer f = foodOrdinal.get(food);
+        return f == null ? -1 : f;
+    }
+
+    /**
+     * @return the menu this was compiled from
+     */
+    public Menu getMenu() {
+        return menu;
+    }
+
+    public int getFoodSize() {
+        return foods.length;
+    }
+
+    public Food getFood(int food) {
+        return foods[food];
+    }
+
+    public long getFoodPrice(int food) {
+        return foodPrice[food];
+    }
+
+    /**
+     * @return ordinals of the meals containing the food
+     */
+    public int[] getMealsWithFood(int food) {
+        return foodMeals[food];
+    }
+
+    public int getMealSize() {
+        return meals.length;
+    }
+
+    public Meal getMeal(int meal) {
+        return meals[meal];
+    }
+
+    public long getMealPrice(int meal) {
+        return mealPrice[meal];
+    }
+
+    /**
+     * @return price of the meal food bought alone minus price of the meal, in cents
+     */
+    public long getMealSaving(int meal) {
+        return mealSaving[meal];
+    }
+
+    /**
+     * @return distinct food ordinals in the meal
+     */
+    public int[] getMealFood(int meal) {
+        return mealFood[meal];
+    }
+
+    /**
+     * @return how many of each food in getMealFood(meal) the meal contains
+     */
+    public int[] getMealFoodNeed(int meal) {
+        return mealFoodNeed[meal];
+    }
+
+    private static final Comparator<Item> BY_NAME = new Comparator<Item>() {
+        @Override
+        public int compare(Item i1, Item i2) {
+            return i1.getName().compareTo(i2.getName());
+        }
+    };
+}
@@ -0,0 +1,81 @@
+package quiz.meal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import quiz.meal.model.Food;
+import quiz.meal.model.Meal;
+
+public class CompiledMenuTest {
+    private Menu menu;
+    private CompiledMenu compiled;
+
+    @Before
+    public void setUp() {
+        menu = new SimpleMenu();
+        compiled = new CompiledMenu(menu);
+    }
+
+    @Test
+    public void testAllItemsCompiled() {
+        assertEquals(menu.getAllItems().size(), compiled.getFoodSize() + compiled.getMealSize());
+        for (int f = 0; f < compiled.getFoodSize(); f++) {
+            Food food = compiled.getFood(f);
+            assertEquals(f, compiled.getFoodOrdinal(food));
+            assertEquals(food.getPriceCents(), compiled.getFoodPrice(f));
+        }
+    }
+
+    @Test
+    public void testMealFoodCount() {
+        int m = indexOf("雙層芝士孖堡套餐");
+        int[] count = compiled.getFoodCount(menu.getItems("雙層芝士孖堡套餐"));
+        int[] expected = compiled.getFoodCount(menu.getItems("雙層芝士孖堡", "中薯條", "中可樂"));
+        assertArrayEquals(expected, count);
+
+        int[] food = compiled.getMealFood(m);
+        int[] need = compiled.getMealFoodNeed(m);
+        assertEquals(3, food.length);
+        for (int i = 0; i < food.length; i++) {
+            assertEquals(expected[food[i]], need[i]);
+        }
+
+        // 12.5 + 8.8 + 8.5 - 23.8
+        assertEquals(600, compiled.getMealSaving(m));
+    }
+
+    @Test
+    public void testMealsWithFood() {
+        int coke = compiled.getFoodOrdinal((Food) menu.getItems("中可樂").get(0));
+        assertEquals(compiled.getMealSize(), compiled.getMealsWithFood(coke).length);
+
+        int nuggets = compiled.getFoodOrdinal((Food) menu.getItems("麥樂雞 (6件)").get(0));
+        int[] meals = compiled.getMealsWithFood(nuggets);
+        assertEquals(2, meals.length);
+        assertTrue(Arrays.asList(compiled.getMeal(meals[0]).getName(), compiled.getMeal(meals[1]).getName())
+                .containsAll(Arrays.asList("麥樂雞 (6件) 套餐", "麥樂雞翼套餐")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFood() {
+        Food food = new Food();
+        food.setName("豬扒包");
+        compiled.getFoodOrdinal(food);
+    }
+
+    private int indexOf(String mealName) {
+        Meal meal = (Meal) menu.getItems(mealName).get(0);
+        for (int m = 0; m < compiled.getMealSize(); m++) {
+            if (compiled.getMeal(m).equals(meal)) {
+                return m;
+            }
+        }
+        throw new AssertionError("no meal " + mealName);
+    }
+}
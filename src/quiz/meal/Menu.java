@@ -13,4 +13,6 @@ public interface Menu {
 
     double getOrderPrice(List<Item> items);
 
+    long getOrderPriceCents(List<Item> items);
+
 }
\ No newline at end of file
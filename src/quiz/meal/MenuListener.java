@@ -0,0 +1,16 @@
+package quiz.meal;
+
+/**
+ * Notified when a menu publishes new items, so that anything precomputed from
+ * the old items can be rebuilt.
+ * 
+ * @author siuying
+ */
+public interface MenuListener {
+
+    /**
+     * @param menu immutable snapshot of the new items
+     */
+    void menuChanged(Menu menu);
+
+}
@@ -1,6 +1,8 @@
 package quiz.meal;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,4 +53,47 @@ public class OrderHelper {
         }
         return itemCount;
     }
+
+    /**
+     * Canonical key of a basket: the food represented by the items, counted and
+     * sorted by name. Baskets asking for the same food in any order, or as meals
+     * instead of food, have the same key.
+     * 
+     * @param items
+     * @return
+     */
+    public static String getBasketKey(List<? extends Item> items) {
+        List<Map.Entry<Item, Integer>> foodCount = new ArrayList<Map.Entry<Item, Integer>>(
+                getItemCount(getItemAsFoodList(items)).entrySet());
+        Collections.sort(foodCount, new Comparator<Map.Entry<Item, Integer>>() {
+            @Override
+            public int compare(Map.Entry<Item, Integer> e1, Map.Entry<Item, Integer> e2) {
+                return e1.getKey().getName().compareTo(e2.getKey().getName());
+            }
+        });
+
+        StringBuilder key = new StringBuilder();
+        for (Map.Entry<Item, Integer> entry : foodCount) {
+            key.append(entry.getKey().getName()).append('\u0000').append(entry.getValue()).append('\u0000');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Names of the items as a YAML flow sequence of double quoted strings, as
+     * in testcase.yml.
+     * 
+     * @param items
+     * @return
+     */
+    public static String toYaml(List<? extends Item> items) {
+        StringBuilder yaml = new StringBuilder("[");
+        for (Item item : items) {
+            if (yaml.length() > 1) {
+                yaml.append(", ");
+            }
+            yaml.append('"').append(item.getName().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return yaml.append(']').toString();
+    }
 }
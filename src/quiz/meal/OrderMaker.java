@@ -7,4 +7,16 @@ import quiz.meal.model.Item;
 public interface OrderMaker {
     List<Item> order(Item ... wantedItems);
 
+    /**
+     * Make the orders of many baskets at once. Identical baskets are solved once.
+     * 
+     * @param wantedItems wanted items of each basket
+     * @return the order of each basket, in the same order as wantedItems
+     */
+    List<List<Item>> orderAll(List<Item[]> wantedItems);
+
+    /**
+     * @return a new session for a basket changed one item at a time
+     */
+    OrderSession openSession();
 }
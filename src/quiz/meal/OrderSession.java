@@ -0,0 +1,44 @@
+package quiz.meal;
+
+import java.util.List;
+
+import quiz.meal.model.Item;
+
+/**
+ * The basket of one customer at the till, changed one item at a time.
+ * 
+ * The order is kept up to date with the wanted items, reusing whatever the
+ * order maker worked out for the earlier baskets. Sessions are used by one
+ * thread at a time.
+ * 
+ * @author siuying
+ */
+public interface OrderSession {
+
+    /**
+     * @param item wanted item, a meal is wanted as the food inside it
+     */
+    void add(Item item);
+
+    /**
+     * @param item wanted item to take back
+     * @throws IllegalArgumentException if the item is not wanted
+     */
+    void remove(Item item);
+
+    /**
+     * @return wanted items, in the order they were added
+     */
+    List<Item> getWantedItems();
+
+    /**
+     * @return the order of the wanted items
+     */
+    List<Item> getOrder();
+
+    /**
+     * @return the price of the order in cents
+     */
+    long getOrderPriceCents();
+
+}
@@ -0,0 +1,203 @@
+package quiz.meal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * The menu without the meals that are never worth ordering, for the order makers
+ * to search fewer meals. The cheapest order of any basket costs the same with
+ * the pruned menu.
+ * 
+ * A meal is dropped when it saves no money, costing at least its food bought
+ * alone. A meal is dominated when its food can be bought at most the same price
+ * with the other meals and food; any order with it can swap it for those. Meals
+ * are checked one by one against the meals still left, so of two equal meals
+ * only the first by name is removed.
+ * 
+ * @author siuying
+ */
+public class PrunedMenu implements Menu {
+    private final Menu menu;
+    private final Menu pruned;
+    private final List<Meal> droppedMeals = new ArrayList<Meal>();
+    private final List<Meal> dominatedMeals = new ArrayList<Meal>();
+
+    public PrunedMenu(Menu menu) {
+        this.menu = menu;
+
+        CompiledMenu compiled = new CompiledMenu(menu);
+        boolean[] removed = new boolean[compiled.getMealSize()];
+        for (int m = 0; m < removed.length; m++) {
+            if (compiled.getMealSaving(m) <= 0) {
+                removed[m] = true;
+                droppedMeals.add(compiled.getMeal(m));
+            }
+        }
+        for (int m = 0; m < removed.length; m++) {
+            if (!removed[m] && new Cover(compiled, m, removed).minCost() <= compiled.getMealPrice(m)) {
+                removed[m] = true;
+                dominatedMeals.add(compiled.getMeal(m));
+            }
+        }
+
+        Map<String, Item> items = new HashMap<String, Item>(menu.getAllItems());
+        for (int m = 0; m < removed.length; m++) {
+            if (removed[m]) {
+                items.remove(compiled.getMeal(m).getName());
+            }
+        }
+        pruned = new SimpleMenu(items);
+    }
+
+    /**
+     * @return the menu before pruning
+     */
+    public Menu getMenu() {
+        return menu;
+    }
+
+    /**
+     * @return meals costing at least their food bought alone
+     */
+    public List<Meal> getDroppedMeals() {
+        return Collections.unmodifiableList(droppedMeals);
+    }
+
+    /**
+     * @return meals whose food costs no more with other meals
+     */
+    public List<Meal> getDominatedMeals() {
+        return Collections.unmodifiableList(dominatedMeals);
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getAllItems()
+     */
+    public Map<String, Item> getAllItems() {
+        return pruned.getAllItems();
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getItems(java.lang.String)
+     */
+    public List<Item> getItems(String... names) {
+        return pruned.getItems(names);
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getOrderPrice(java.util.List)
+     */
+    public double getOrderPrice(List<Item> items) {
+        return pruned.getOrderPrice(items);
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getOrderPriceCents(java.util.List)
+     */
+    public long getOrderPriceCents(List<Item> items) {
+        return pruned.getOrderPriceCents(items);
+    }
+
+    /**
+     * Cheapest way to buy the food of one meal without it, by the meals not
+     * removed and food alone.
+     */
+    private static class Cover {
+        private final CompiledMenu menu;
+        private final int[] foods;
+        private final int[] remain;
+        private final List<Integer> meals = new ArrayList<Integer>();
+        // count of each meal food in the other meals
+        private final List<int[]> mealNeed = new ArrayList<int[]>();
+
+        Cover(CompiledMenu menu, int meal, boolean[] removed) {
+            this.menu = menu;
+            foods = menu.getMealFood(meal);
+            remain = menu.getMealFoodNeed(meal).clone();
+
+            for (int i = 0; i < foods.length; i++) {
+                for (int m : menu.getMealsWithFood(foods[i])) {
+                    if (m == meal || removed[m] || meals.contains(m)) {
+                        continue;
+                    }
+                    int[] need = getNeed(m);
+                    if (need != null) {
+                        meals.add(m);
+                        mealNeed.add(need);
+                    }
+                }
+            }
+        }
+
+        /*
+         * count of each meal food in meal m, or null if m has other food or too many
+         */
+        private int[] getNeed(int m) {
+            int[] need = new int[foods.length];
+            int[] food = menu.getMealFood(m);
+            int[] count = menu.getMealFoodNeed(m);
+            for (int j = 0; j < food.length; j++) {
+                int i = indexOf(food[j]);
+                if (i < 0 || count[j] > remain[i]) {
+                    return null;
+                }
+                need[i] = count[j];
+            }
+            return need;
+        }
+
+        private int indexOf(int food) {
+            for (int i = 0; i < foods.length; i++) {
+                if (foods[i] == food) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /*
+         * The first remaining food is bought either alone or in a meal with it.
+         */
+        long minCost() {
+            int f = 0;
+            while (f < remain.length && remain[f] == 0) {
+                f++;
+            }
+            if (f == remain.length) {
+                return 0;
+            }
+
+            remain[f]--;
+            long best = menu.getFoodPrice(foods[f]) + minCost();
+            remain[f]++;
+
+            for (int k = 0; k < meals.size(); k++) {
+                int[] need = mealNeed.get(k);
+                if (need[f] == 0 || !take(need, -1)) {
+                    continue;
+                }
+                best = Math.min(best, menu.getMealPrice(meals.get(k)) + minCost());
+                take(need, 1);
+            }
+            return best;
+        }
+
+        private boolean take(int[] need, int sign) {
+            for (int i = 0; i < need.length; i++) {
+                if (sign < 0 && need[i] > remain[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < need.length; i++) {
+                remain[i] += sign * need[i];
+            }
+            return true;
+        }
+    }
+}
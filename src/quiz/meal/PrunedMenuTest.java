@@ -0,0 +1,99 @@
+package quiz.meal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import quiz.meal.csp.CSOrderMaker;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+import quiz.meal.search.TreeSearchOrderMaker;
+
+public class PrunedMenuTest {
+
+    @Test
+    public void testDroppedAndDominatedMeals() {
+        Map<String, Item> items = new HashMap<String, Item>();
+        Food burger = food(items, "burger", 20);
+        Food fries = food(items, "fries", 10);
+        Food coke = food(items, "coke", 8);
+        meal(items, "A", 30, burger, fries, coke);
+        meal(items, "B", 27, burger, fries);
+        meal(items, "C", 36, burger, fries, coke);
+        meal(items, "D", 18, fries, coke);
+        meal(items, "E", 30, burger, fries, coke);
+
+        PrunedMenu pruned = new PrunedMenu(new SimpleMenu(items));
+        assertEquals(Arrays.asList(items.get("D")), pruned.getDroppedMeals());
+        // A is as cheap as E, and C costs more than B and a coke
+        assertEquals(Arrays.asList(items.get("A"), items.get("C")), pruned.getDominatedMeals());
+        assertEquals(5, pruned.getAllItems().size());
+        assertTrue(pruned.getAllItems().containsKey("B"));
+        assertTrue(pruned.getAllItems().containsKey("E"));
+        assertFalse(pruned.getAllItems().containsKey("C"));
+    }
+
+    @Test
+    public void testSameCheapestOrder() {
+        MenuGenerator generator = new MenuGenerator(5);
+        generator.setSides(4);
+        generator.setNoSavingRatio(0.3);
+        Menu menu = generator.generateMenu(30);
+        PrunedMenu pruned = new PrunedMenu(menu);
+        assertFalse(pruned.getDroppedMeals().isEmpty());
+        assertTrue(pruned.getAllItems().size() < menu.getAllItems().size());
+
+        OrderMaker full = new DynamicProgrammingOrderMaker(menu);
+        OrderMaker[] makers = { new DynamicProgrammingOrderMaker(pruned),
+                new TreeSearchOrderMaker(pruned, TreeSearchOrderMaker.Mode.BOUNDED) };
+        BasketGenerator baskets = new BasketGenerator(menu, 6);
+        for (int i = 0; i < 50; i++) {
+            Item[] basket = i % 2 == 0 ? baskets.randomBasket(8) : baskets.adversarialBasket(8);
+            long expected = menu.getOrderPriceCents(full.order(basket));
+            for (OrderMaker maker : makers) {
+                assertEquals(expected, menu.getOrderPriceCents(maker.order(basket)));
+            }
+        }
+    }
+
+    @Test
+    public void testFoodYml() {
+        Menu menu = new SimpleMenu();
+        PrunedMenu pruned = new PrunedMenu(menu);
+        OrderMaker full = new DynamicProgrammingOrderMaker(menu);
+        OrderMaker cs = new CSOrderMaker(pruned, CSOrderMaker.Mode.SPARSE);
+        BasketGenerator baskets = new BasketGenerator(menu, 7);
+        for (int i = 0; i < 20; i++) {
+            Item[] basket = baskets.randomBasket(6);
+            assertEquals(menu.getOrderPriceCents(full.order(basket)), menu.getOrderPriceCents(cs.order(basket)));
+        }
+    }
+
+    private Food food(Map<String, Item> items, String name, double price) {
+        Food food = new Food();
+        food.setName(name);
+        food.setPrice(price);
+        items.put(name, food);
+        return food;
+    }
+
+    private Meal meal(Map<String, Item> items, String name, double price, Food... food) {
+        Meal meal = new Meal();
+        meal.setName(name);
+        meal.setPrice(price);
+        meal.setFood(new ArrayList<Food>(Arrays.asList(food)));
+        items.put(name, meal);
+        return meal;
+    }
+}
@@ -1,7 +1,9 @@
 package quiz.meal;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +19,23 @@ public class SimpleMenu implements Menu {
         items = Collections.unmodifiableMap((Map<String, Item>) Yaml.load(OrderMaker.class.getResourceAsStream("food.yml")));
     }
     
+    /**
+     * Load the menu from YAML in the format of food.yml.
+     * @param yaml
+     */
+    @SuppressWarnings("unchecked")
+    public SimpleMenu(InputStream yaml) {
+        items = Collections.unmodifiableMap((Map<String, Item>) Yaml.load(yaml));
+    }
+    
+    /**
+     * Create a menu of the items, keyed by item name.
+     * @param items
+     */
+    public SimpleMenu(Map<String, Item> items) {
+        this.items = Collections.unmodifiableMap(new HashMap<String, Item>(items));
+    }
+    
     /* (non-Javadoc)
      * @see quiz.meal.Menu#getAllItems()
      */
@@ -45,9 +64,16 @@ public class SimpleMenu implements Menu {
      * @see quiz.meal.Menu#getOrderPrice(java.util.List)
      */
     public double getOrderPrice(List<Item> items) {
-        double price = 0.0;
+        return getOrderPriceCents(items) / 100.0;
+    }
+    
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getOrderPriceCents(java.util.List)
+     */
+    public long getOrderPriceCents(List<Item> items) {
+        long price = 0;
         for(Item i : items) {
-            price += i.getPrice();
+            price += i.getPriceCents();
         }
         
         return price;
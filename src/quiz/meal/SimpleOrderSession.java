@@ -0,0 +1,66 @@
+package quiz.meal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import quiz.meal.model.Item;
+
+/**
+ * Order session for any order maker. The whole basket is ordered again when
+ * the order is asked for after a change, and not before.
+ * 
+ * @author siuying
+ */
+public class SimpleOrderSession implements OrderSession {
+    private final OrderMaker orderMaker;
+    private final List<Item> wantedItems = new ArrayList<Item>();
+    private List<Item> order = Collections.emptyList();
+    private long priceCents;
+    private boolean changed;
+
+    public SimpleOrderSession(OrderMaker orderMaker) {
+        this.orderMaker = orderMaker;
+    }
+
+    @Override
+    public void add(Item item) {
+        wantedItems.add(item);
+        changed = true;
+    }
+
+    @Override
+    public void remove(Item item) {
+        // take back the last one added
+        int i = wantedItems.lastIndexOf(item);
+        if (i < 0) {
+            throw new IllegalArgumentException("Sorry you have not ordered " + item.getName() + "!");
+        }
+        wantedItems.remove(i);
+        changed = true;
+    }
+
+    @Override
+    public List<Item> getWantedItems() {
+        return Collections.unmodifiableList(wantedItems);
+    }
+
+    @Override
+    public List<Item> getOrder() {
+        if (changed) {
+            order = orderMaker.order(wantedItems.toArray(new Item[wantedItems.size()]));
+            priceCents = 0;
+            for (Item item : order) {
+                priceCents += item.getPriceCents();
+            }
+            changed = false;
+        }
+        return Collections.unmodifiableList(order);
+    }
+
+    @Override
+    public long getOrderPriceCents() {
+        getOrder();
+        return priceCents;
+    }
+}
@@ -0,0 +1,47 @@
+package quiz.meal.anytime;
+
+import java.util.List;
+
+import quiz.meal.model.Item;
+
+/**
+ * The best order found within a time budget.
+ * 
+ * @author siuying
+ */
+public class AnytimeOrder {
+    private final List<Item> items;
+    private final long priceCents;
+    private final boolean optimal;
+
+    public AnytimeOrder(List<Item> items, long priceCents, boolean optimal) {
+        this.items = items;
+        this.priceCents = priceCents;
+        this.optimal = optimal;
+    }
+
+    /**
+     * @return the order items
+     */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * @return price of the order in cents
+     */
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    /**
+     * @return true if the exact order maker finished in time, so no order is cheaper
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    public String toString() {
+        return String.format("AnytimeOrder(%s,%d,%s)", items, priceCents, optimal ? "optimal" : "best found");
+    }
+}
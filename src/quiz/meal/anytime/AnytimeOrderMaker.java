@@ -0,0 +1,232 @@
+package quiz.meal.anytime;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.Menu;
+import quiz.meal.OrderMaker;
+import quiz.meal.model.Item;
+import quiz.meal.plain.PlainOrderMaker;
+import quiz.meal.search.TreeSearchOrderMaker;
+
+/**
+ * Make an order within a time budget.
+ * 
+ * The greedy order maker answers at once, then the exact order maker runs in
+ * another thread until the deadline. If it finishes in time its order is
+ * optimal. Otherwise it is interrupted; an exact order maker which stops on
+ * interrupt, like the sequential TreeSearchOrderMaker, hands back the best
+ * order it has found, others are given up. The cheaper of the orders at hand
+ * is returned. At most a fixed number of exact order makers run at once; an
+ * order coming when all of them are busy, or whose exact order maker fails,
+ * gets the greedy order.
+ * 
+ * @author siuying
+ */
+public class AnytimeOrderMaker extends AbstractOrderMaker {
+    // how long to wait for the exact order maker to stop once interrupted
+    private static final long STOP_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private Logger log = Logger.getLogger(AnytimeOrderMaker.class.getName());
+
+    private final Menu menu;
+    private final OrderMaker greedyOrderMaker;
+    private final OrderMaker exactOrderMaker;
+    private final long budgetNanos;
+    private final ExecutorService executor;
+
+    /**
+     * Refine the PlainOrderMaker order with a bounded TreeSearchOrderMaker.
+     */
+    public AnytimeOrderMaker(Menu menu, long budget, TimeUnit unit) {
+        this(menu, new PlainOrderMaker(menu), new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.BOUNDED),
+                budget, unit);
+    }
+
+    /**
+     * @param menu menu to price the orders
+     * @param greedyOrderMaker fast order maker giving the first order
+     * @param exactOrderMaker order maker giving the cheapest order, given the time
+     * @param budget default time budget of order()
+     */
+    public AnytimeOrderMaker(Menu menu, OrderMaker greedyOrderMaker, OrderMaker exactOrderMaker, long budget,
+            TimeUnit unit) {
+        this(menu, greedyOrderMaker, exactOrderMaker, budget, unit, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxThreads most exact order makers running at once, including
+     *            those interrupted but not stopped yet
+     */
+    public AnytimeOrderMaker(Menu menu, OrderMaker greedyOrderMaker, OrderMaker exactOrderMaker, long budget,
+            TimeUnit unit, int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("Sorry, at least one thread is needed: " + maxThreads);
+        }
+        this.menu = menu;
+        this.greedyOrderMaker = greedyOrderMaker;
+        this.exactOrderMaker = exactOrderMaker;
+        this.budgetNanos = unit.toNanos(budget);
+        // no queue: an exact order waiting for a thread would only eat its own budget
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "anytime-order");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    @Override
+    public List<Item> order(Item... wantedItems) {
+        return orderWithin(budgetNanos, TimeUnit.NANOSECONDS, wantedItems).getItems();
+    }
+
+    /**
+     * @param budget time to return the order in
+     * @return the cheapest order found in time
+     */
+    public AnytimeOrder orderWithin(long budget, TimeUnit unit, Item... wantedItems) {
+        long deadline = System.nanoTime() + unit.toNanos(budget);
+
+        ExactTask exact = new ExactTask(wantedItems);
+        Future<List<Item>> future;
+        try {
+            future = executor.submit(exact);
+        } catch (RejectedExecutionException e) {
+            future = null;
+        }
+        List<Item> greedy;
+        long greedyPrice;
+        try {
+            greedy = greedyOrderMaker.order(wantedItems);
+            greedyPrice = menu.getOrderPriceCents(greedy);
+        } catch (RuntimeException e) {
+            // give the thread back rather than leave the exact order maker running for nothing
+            if (future != null) {
+                exact.interrupt();
+                future.cancel(true);
+            }
+            throw e;
+        }
+        if (future == null) {
+            log.debug("all exact order makers busy, keeping the greedy order");
+            return new AnytimeOrder(greedy, greedyPrice, false);
+        }
+
+        List<Item> order = null;
+        try {
+            order = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            exact.interrupt();
+            try {
+                order = future.get(STOP_WAIT_NANOS, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException stillRunning) {
+                future.cancel(true);
+            } catch (ExecutionException failed) {
+                log.warn("exact order maker failed, keeping the greedy order", failed.getCause());
+            } catch (InterruptedException interrupted) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+            }
+        } catch (ExecutionException e) {
+            log.warn("exact order maker failed, keeping the greedy order", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+
+        if (order == null) {
+            return new AnytimeOrder(greedy, greedyPrice, false);
+        }
+        long price = menu.getOrderPriceCents(order);
+        boolean optimal = !exact.wasInterrupted();
+        if (price > greedyPrice) {
+            return new AnytimeOrder(greedy, greedyPrice, false);
+        }
+        return new AnytimeOrder(order, price, optimal);
+    }
+
+    /**
+     * Stop the threads running the exact order maker.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public long getBudget(TimeUnit unit) {
+        return unit.convert(budgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public OrderMaker getGreedyOrderMaker() {
+        return greedyOrderMaker;
+    }
+
+    public OrderMaker getExactOrderMaker() {
+        return exactOrderMaker;
+    }
+
+    /**
+     * Run the exact order maker, remembering its thread so that only this
+     * task is ever interrupted, not the next one run by the thread.
+     */
+    private class ExactTask implements Callable<List<Item>> {
+        private final Item[] wantedItems;
+        private Thread runner;
+        private boolean finished;
+        private boolean interrupted;
+
+        public ExactTask(Item[] wantedItems) {
+            this.wantedItems = wantedItems;
+        }
+
+        @Override
+        public List<Item> call() {
+            synchronized (this) {
+                if (interrupted) {
+                    return null;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                return exactOrderMaker.order(wantedItems);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    finished = true;
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        public synchronized void interrupt() {
+            if (finished) {
+                return;
+            }
+            interrupted = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        public synchronized boolean wasInterrupted() {
+            return interrupted;
+        }
+    }
+}
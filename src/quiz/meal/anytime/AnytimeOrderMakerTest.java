@@ -0,0 +1,201 @@
+package quiz.meal.anytime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.Menu;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+import quiz.meal.plain.PlainOrderMaker;
+import quiz.meal.search.TreeSearchOrderMaker;
+
+public class AnytimeOrderMakerTest extends AbstractOrderMakerTest {
+    private AnytimeOrderMaker maker;
+
+    public OrderMaker getOrderMaker() {
+        maker = new AnytimeOrderMaker(new SimpleMenu(), 10, TimeUnit.SECONDS);
+        return maker;
+    }
+
+    @After
+    public void tearDown() {
+        maker.shutdown();
+    }
+
+    @Test
+    public void testOptimalInTime() {
+        List<Item> wantedItems = getSimpleMenu().getItems("雙層芝士孖堡", "至尊漢堡", "中薯條", "中可樂");
+        AnytimeOrder order = maker.orderWithin(10, TimeUnit.SECONDS, wantedItems.toArray(new Item[0]));
+        assertTrue(order.isOptimal());
+        assertEquals(getSimpleMenu().getOrderPriceCents(getSimpleMenu().getItems("雙層芝士孖堡", "至尊漢堡套餐")),
+                order.getPriceCents());
+    }
+
+    @Test
+    public void testGreedyWhenExactIsLate() {
+        Menu menu = getSimpleMenu();
+        OrderMaker stuck = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                // ignores interrupts, like a third party solver
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                while (System.nanoTime() < end) {
+                }
+                return new ArrayList<Item>(Arrays.asList(wantedItems));
+            }
+        };
+        AnytimeOrderMaker late = new AnytimeOrderMaker(menu, new PlainOrderMaker(menu), stuck, 20,
+                TimeUnit.MILLISECONDS);
+        try {
+            Item[] wanted = menu.getItems("雙層芝士孖堡", "中薯條", "中可樂").toArray(new Item[0]);
+            long start = System.nanoTime();
+            AnytimeOrder order = late.orderWithin(20, TimeUnit.MILLISECONDS, wanted);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertFalse(order.isOptimal());
+            assertEquals(new PlainOrderMaker(menu).order(wanted), order.getItems());
+            assertTrue("took " + elapsed + " ms", elapsed < 1000);
+        } finally {
+            late.shutdown();
+        }
+    }
+
+    @Test
+    public void testGreedyWhenThreadsBusy() {
+        Menu menu = getSimpleMenu();
+        final AtomicInteger runs = new AtomicInteger();
+        OrderMaker stuck = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                runs.incrementAndGet();
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                while (System.nanoTime() < end) {
+                }
+                return new ArrayList<Item>(Arrays.asList(wantedItems));
+            }
+        };
+        AnytimeOrderMaker busy = new AnytimeOrderMaker(menu, new PlainOrderMaker(menu), stuck, 20,
+                TimeUnit.MILLISECONDS, 1);
+        try {
+            Item[] wanted = menu.getItems("雙層芝士孖堡", "中薯條", "中可樂").toArray(new Item[0]);
+            busy.orderWithin(20, TimeUnit.MILLISECONDS, wanted);
+
+            // the only thread is still stuck on the first order
+            AnytimeOrder order = busy.orderWithin(20, TimeUnit.MILLISECONDS, wanted);
+            assertFalse(order.isOptimal());
+            assertEquals(new PlainOrderMaker(menu).order(wanted), order.getItems());
+            assertEquals(1, runs.get());
+        } finally {
+            busy.shutdown();
+        }
+    }
+
+    @Test
+    public void testGreedyFailureFreesThread() throws InterruptedException {
+        final Menu menu = getSimpleMenu();
+        final AtomicInteger runs = new AtomicInteger();
+        OrderMaker sleepy = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                runs.incrementAndGet();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e) {
+                    // stop at once
+                }
+                return new ArrayList<Item>(Arrays.asList(wantedItems));
+            }
+        };
+        final AtomicInteger greedyCalls = new AtomicInteger();
+        OrderMaker failingOnce = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                if (greedyCalls.incrementAndGet() == 1) {
+                    throw new IllegalStateException("broken greedy order maker");
+                }
+                return new PlainOrderMaker(menu).order(wantedItems);
+            }
+        };
+        AnytimeOrderMaker anytime = new AnytimeOrderMaker(menu, failingOnce, sleepy, 10, TimeUnit.MILLISECONDS, 1);
+        try {
+            Item[] wanted = menu.getItems("雙層芝士孖堡", "中薯條", "中可樂").toArray(new Item[0]);
+            try {
+                anytime.orderWithin(10, TimeUnit.MILLISECONDS, wanted);
+                fail("the greedy order maker failure must be thrown");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            // the only thread is given back, so the exact order maker runs again
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (runs.get() < 2 && System.nanoTime() < end) {
+                anytime.orderWithin(10, TimeUnit.MILLISECONDS, wanted);
+                Thread.sleep(5);
+            }
+            assertEquals(2, runs.get());
+        } finally {
+            anytime.shutdown();
+        }
+    }
+
+    @Test
+    public void testGreedyWhenExactFails() {
+        Menu menu = getSimpleMenu();
+        OrderMaker broken = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                throw new IllegalStateException("broken exact order maker");
+            }
+        };
+        AnytimeOrderMaker anytime = new AnytimeOrderMaker(menu, new PlainOrderMaker(menu), broken, 1,
+                TimeUnit.SECONDS);
+        try {
+            Item[] wanted = menu.getItems("雙層芝士孖堡", "中薯條", "中可樂").toArray(new Item[0]);
+            AnytimeOrder order = anytime.orderWithin(1, TimeUnit.SECONDS, wanted);
+            assertFalse(order.isOptimal());
+            assertEquals(new PlainOrderMaker(menu).order(wanted), order.getItems());
+        } finally {
+            anytime.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterruptedSearchKeepsBestFound() {
+        MenuGenerator generator = new MenuGenerator(3);
+        generator.setSides(6);
+        Menu menu = generator.generateMenu(40);
+        Item[] wanted = new BasketGenerator(menu, 4).adversarialBasket(60);
+
+        PlainOrderMaker greedy = new PlainOrderMaker(menu);
+        AnytimeOrderMaker anytime = new AnytimeOrderMaker(menu, greedy,
+                new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.EXHAUSTIVE), 30, TimeUnit.MILLISECONDS);
+        try {
+            long start = System.nanoTime();
+            AnytimeOrder order = anytime.orderWithin(30, TimeUnit.MILLISECONDS, wanted);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertFalse(order.isOptimal());
+            assertTrue(order.getPriceCents() <= menu.getOrderPriceCents(greedy.order(wanted)));
+            assertEquals(menu.getOrderPriceCents(order.getItems()), order.getPriceCents());
+            assertTrue("took " + elapsed + " ms", elapsed < 1000);
+        } finally {
+            anytime.shutdown();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package quiz.meal.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.model.Food;
+
+/**
+ * Write a menu in the binary menu format read by MappedMenu.
+ * 
+ * All numbers are big-endian, names are an int length and UTF-8 bytes:
+ * <pre>
+ * int    MAGIC, int VERSION
+ * int    number of food
+ * food:  name, long price in cents
+ * int    number of meals
+ * meal:  name, long price in cents, int number of food, int food ordinal...
+ * </pre>
+ * Food ordinals are those of CompiledMenu.
+ * 
+ * @author siuying
+ */
+public class BinaryMenuWriter {
+    public static final int MAGIC = 0x514d4e55;
+    public static final int VERSION = 1;
+
+    public static void write(Menu menu, OutputStream output) throws IOException {
+        CompiledMenu compiled = new CompiledMenu(menu);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeInt(compiled.getFoodSize());
+        for (int f = 0; f < compiled.getFoodSize(); f++) {
+            writeName(out, compiled.getFood(f).getName());
+            out.writeLong(compiled.getFoodPrice(f));
+        }
+
+        out.writeInt(compiled.getMealSize());
+        for (int m = 0; m < compiled.getMealSize(); m++) {
+            writeName(out, compiled.getMeal(m).getName());
+            out.writeLong(compiled.getMealPrice(m));
+            List<Food> food = compiled.getMeal(m).getFood();
+            out.writeInt(food.size());
+            for (Food f : food) {
+                out.writeInt(compiled.getFoodOrdinal(f));
+            }
+        }
+        out.flush();
+    }
+
+    public static void write(Menu menu, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(menu, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Convert a YAML menu to the binary format.
+     * 
+     * @param args YAML menu file, or "-" for the shipped food.yml, and the binary menu file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BinaryMenuWriter <menu.yml | -> <menu.bin>");
+            System.exit(1);
+        }
+
+        Menu menu;
+        if ("-".equals(args[0])) {
+            menu = new SimpleMenu();
+        } else {
+            InputStream in = new FileInputStream(args[0]);
+            try {
+                menu = new SimpleMenu(in);
+            } finally {
+                in.close();
+            }
+        }
+        write(menu, new File(args[1]));
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,149 @@
+package quiz.meal.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * Menu loaded from the binary menu format of BinaryMenuWriter, through a
+ * memory-mapped file. Loading does no YAML parsing and no reflection, which
+ * is most of the start up time of SimpleMenu on a large menu.
+ * 
+ * @author siuying
+ */
+public class MappedMenu implements Menu {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Menu menu;
+
+    public MappedMenu(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            menu = new SimpleMenu(read(buffer));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @throws IOException if the menu is not a binary menu, or is truncated or corrupt
+     */
+    private static Map<String, Item> read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 8 || buffer.getInt() != BinaryMenuWriter.MAGIC) {
+            throw new IOException("not a binary menu");
+        }
+        int version = buffer.getInt();
+        if (version != BinaryMenuWriter.VERSION) {
+            throw new IOException("unsupported binary menu version " + version);
+        }
+
+        Map<String, Item> items = new HashMap<String, Item>();
+        // a food is at least a name length and a price
+        Food[] foods = new Food[readCount(buffer, 4 + 8)];
+        for (int f = 0; f < foods.length; f++) {
+            foods[f] = new Food();
+            foods[f].setName(readName(buffer));
+            foods[f].setPrice(readLong(buffer) / 100.0);
+            items.put(foods[f].getName(), foods[f]);
+        }
+
+        // a meal is at least a name length, a price and a number of food
+        int mealSize = readCount(buffer, 4 + 8 + 4);
+        for (int m = 0; m < mealSize; m++) {
+            Meal meal = new Meal();
+            meal.setName(readName(buffer));
+            meal.setPrice(readLong(buffer) / 100.0);
+            List<Food> food = new ArrayList<Food>();
+            int foodSize = readCount(buffer, 4);
+            for (int i = 0; i < foodSize; i++) {
+                int offset = buffer.position();
+                int f = buffer.getInt();
+                if (f < 0 || f >= foods.length) {
+                    throw new IOException("corrupt binary menu: food ordinal " + f + " at offset " + offset);
+                }
+                food.add(foods[f]);
+            }
+            meal.setFood(food);
+            items.put(meal.getName(), meal);
+        }
+        return items;
+    }
+
+    private static String readName(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[readCount(buffer, 1)];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static long readLong(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 8) {
+            throw new IOException("truncated binary menu at offset " + buffer.position());
+        }
+        return buffer.getLong();
+    }
+
+    /**
+     * Read the number of elements following, checking they can fit in the rest of the buffer.
+     * 
+     * @param minSize the least bytes an element takes
+     */
+    private static int readCount(ByteBuffer buffer, int minSize) throws IOException {
+        int offset = buffer.position();
+        if (buffer.remaining() < 4) {
+            throw new IOException("truncated binary menu at offset " + offset);
+        }
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IOException("corrupt binary menu: count " + count + " at offset " + offset);
+        }
+        if ((long) count * minSize > buffer.remaining()) {
+            throw new IOException("truncated binary menu: " + count + " elements at offset " + offset
+                    + " but " + buffer.remaining() + " bytes left");
+        }
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getAllItems()
+     */
+    public Map<String, Item> getAllItems() {
+        return menu.getAllItems();
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getItems(java.lang.String)
+     */
+    public List<Item> getItems(String... names) {
+        return menu.getItems(names);
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getOrderPrice(java.util.List)
+     */
+    public double getOrderPrice(List<Item> items) {
+        return menu.getOrderPrice(items);
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getOrderPriceCents(java.util.List)
+     */
+    public long getOrderPriceCents(List<Item> items) {
+        return menu.getOrderPriceCents(items);
+    }
+}
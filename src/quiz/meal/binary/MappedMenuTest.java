@@ -0,0 +1,117 @@
+package quiz.meal.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+public class MappedMenuTest {
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("menu", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testFoodYml() throws Exception {
+        Menu menu = new SimpleMenu();
+        BinaryMenuWriter.write(menu, file);
+        assertSameMenu(menu, new MappedMenu(file));
+    }
+
+    @Test
+    public void testGeneratedMenu() throws Exception {
+        Menu menu = new MenuGenerator(1).generateMenu(1000);
+        BinaryMenuWriter.write(menu, file);
+        assertSameMenu(menu, new MappedMenu(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotBinaryMenu() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("---\n".getBytes("UTF-8"));
+        out.close();
+        new MappedMenu(file);
+    }
+
+    @Test
+    public void testTruncatedMenu() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryMenuWriter.write(new SimpleMenu(), bytes);
+        byte[] whole = bytes.toByteArray();
+        for (int length = 8; length < whole.length; length++) {
+            writeFile(Arrays.copyOf(whole, length));
+            try {
+                new MappedMenu(file);
+                fail("menu truncated to " + length + " bytes must not load");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptMenu() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryMenuWriter.write(new SimpleMenu(), bytes);
+        byte[] whole = bytes.toByteArray();
+
+        // the food count, then the last food ordinal of the last meal
+        int[] offsets = { 8, whole.length - 4 };
+        for (int offset : offsets) {
+            byte[] corrupt = whole.clone();
+            ByteBuffer.wrap(corrupt).putInt(offset, -1);
+            writeFile(corrupt);
+            try {
+                new MappedMenu(file);
+                fail("menu corrupt at offset " + offset + " must not load");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("offset " + offset));
+            }
+        }
+    }
+
+    private void writeFile(byte[] bytes) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void assertSameMenu(Menu expected, Menu actual) {
+        assertEquals(expected.getAllItems().keySet(), actual.getAllItems().keySet());
+        for (Item item : expected.getAllItems().values()) {
+            Item loaded = actual.getAllItems().get(item.getName());
+            assertEquals(item.getClass(), loaded.getClass());
+            assertEquals(item.getPriceCents(), loaded.getPriceCents());
+            assertEquals(item.getPrice(), loaded.getPrice(), 0);
+            if (item instanceof Meal) {
+                assertEquals(((Meal) item).getFood(), ((Meal) loaded).getFood());
+            }
+        }
+    }
+}
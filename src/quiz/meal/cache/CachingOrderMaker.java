@@ -0,0 +1,211 @@
+package quiz.meal.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.model.Item;
+
+/**
+ * Remember the orders made by another order maker, so that popular baskets are
+ * solved only once.
+ *
+ * Baskets are keyed by OrderHelper.getBasketKey(), so the same food wanted in
+ * any order share one cached order. The cache holds at most maxSize orders and
+ * evicts the least recently used one. It is cleared when the menu publishes
+ * new items, or when invalidate() is called. Listening to a ReloadableMenu,
+ * add it after the order maker it wraps so that the order maker is rebuilt
+ * before the cache is cleared.
+ *
+ * @author siuying
+ */
+public class CachingOrderMaker extends AbstractOrderMaker implements MenuListener {
+    private final OrderMaker orderMaker;
+    private final Menu menu;
+    private final int maxSize;
+    private final Map<String, List<Item>> cache;
+    private Map<String, Item> cachedItems;
+    // changed whenever the cache is cleared, so orders made before are not cached
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param orderMaker order maker to make the orders not in cache
+     * @param menu menu used by the order maker
+     * @param maxSize maximum number of orders in cache
+     */
+    public CachingOrderMaker(OrderMaker orderMaker, Menu menu, final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("cache size must be positive: " + maxSize);
+        }
+        this.orderMaker = orderMaker;
+        this.menu = menu;
+        this.maxSize = maxSize;
+        this.cachedItems = menu.getAllItems();
+        this.cache = new LinkedHashMap<String, List<Item>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Item>> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List<Item> order(Item... wantedItems) {
+        String key = OrderHelper.getBasketKey(Arrays.asList(wantedItems));
+        Map<String, Item> items = menu.getAllItems();
+
+        List<Item> order;
+        long orderGeneration;
+        synchronized (cache) {
+            if (items != cachedItems) {
+                cache.clear();
+                cachedItems = items;
+                generation++;
+            }
+            order = cache.get(key);
+            orderGeneration = generation;
+        }
+
+        if (order != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            order = Collections.unmodifiableList(new ArrayList<Item>(orderMaker.order(wantedItems)));
+            synchronized (cache) {
+                if (orderGeneration == generation) {
+                    cache.put(key, order);
+                }
+            }
+        }
+        return new ArrayList<Item>(order);
+    }
+
+    /**
+     * Look every basket up in the cache, and make the orders of the distinct
+     * baskets missed in one batch of the wrapped order maker.
+     */
+    @Override
+    public List<List<Item>> orderAll(List<Item[]> wantedItems) {
+        Map<String, Item> items = menu.getAllItems();
+        String[] keys = new String[wantedItems.size()];
+        List<List<Item>> orders = new ArrayList<List<Item>>(keys.length);
+        Map<String, Integer> missIndex = new HashMap<String, Integer>();
+        List<Item[]> missed = new ArrayList<Item[]>();
+        long batchGeneration;
+        synchronized (cache) {
+            if (items != cachedItems) {
+                cache.clear();
+                cachedItems = items;
+                generation++;
+            }
+            batchGeneration = generation;
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = OrderHelper.getBasketKey(Arrays.asList(wantedItems.get(i)));
+                List<Item> order = cache.get(keys[i]);
+                orders.add(order);
+                if (order != null) {
+                    hits.incrementAndGet();
+                } else {
+                    misses.incrementAndGet();
+                    if (!missIndex.containsKey(keys[i])) {
+                        missIndex.put(keys[i], missed.size());
+                        missed.add(wantedItems.get(i));
+                    }
+                }
+            }
+        }
+
+        if (!missed.isEmpty()) {
+            List<List<Item>> made = orderMaker.orderAll(missed);
+            List<List<Item>> cached = new ArrayList<List<Item>>(made.size());
+            for (List<Item> order : made) {
+                cached.add(Collections.unmodifiableList(new ArrayList<Item>(order)));
+            }
+            synchronized (cache) {
+                if (batchGeneration == generation) {
+                    for (Map.Entry<String, Integer> miss : missIndex.entrySet()) {
+                        cache.put(miss.getKey(), cached.get(miss.getValue()));
+                    }
+                }
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (orders.get(i) == null) {
+                    orders.set(i, cached.get(missIndex.get(keys[i])));
+                }
+            }
+        }
+
+        List<List<Item>> result = new ArrayList<List<Item>>(orders.size());
+        for (List<Item> order : orders) {
+            result.add(new ArrayList<Item>(order));
+        }
+        return result;
+    }
+
+    /**
+     * Forget all cached orders.
+     */
+    public void invalidate() {
+        synchronized (cache) {
+            cache.clear();
+            generation++;
+        }
+    }
+
+    /**
+     * Forget all cached orders, they may be priced with the old menu.
+     */
+    @Override
+    public void menuChanged(Menu menu) {
+        invalidate();
+    }
+
+    /**
+     * @return number of orders in cache
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public OrderMaker getOrderMaker() {
+        return orderMaker;
+    }
+}
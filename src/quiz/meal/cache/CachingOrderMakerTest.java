@@ -0,0 +1,130 @@
+package quiz.meal.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.Menu;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.model.Item;
+
+public class CachingOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        Menu menu = new SimpleMenu();
+        return new CachingOrderMaker(new DynamicProgrammingOrderMaker(menu), menu, 2);
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        CachingOrderMaker maker = (CachingOrderMaker) getOrderMaker();
+        List<Item> order = maker.order(getSimpleMenu().getItems("雙層芝士孖堡", "中薯條", "中可樂").toArray(new Item[0]));
+        List<Item> cached = maker.order(getSimpleMenu().getItems("中可樂", "雙層芝士孖堡", "中薯條").toArray(new Item[0]));
+
+        assertEquals(order, cached);
+        assertEquals(1, maker.getMissCount());
+        assertEquals(1, maker.getHitCount());
+    }
+
+    @Test
+    public void testBatchMisses() {
+        Menu menu = getSimpleMenu();
+        final DynamicProgrammingOrderMaker dp = new DynamicProgrammingOrderMaker(menu);
+        final List<Integer> batches = new ArrayList<Integer>();
+        OrderMaker batching = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                batches.add(1);
+                return dp.order(wantedItems);
+            }
+
+            @Override
+            public List<List<Item>> orderAll(List<Item[]> wantedItems) {
+                batches.add(wantedItems.size());
+                return dp.orderAll(wantedItems);
+            }
+        };
+        CachingOrderMaker maker = new CachingOrderMaker(batching, menu, 10);
+        maker.order(menu.getItems("中薯條").toArray(new Item[0]));
+
+        List<Item[]> baskets = new ArrayList<Item[]>();
+        baskets.add(menu.getItems("中薯條").toArray(new Item[0]));
+        baskets.add(menu.getItems("雙層芝士孖堡", "中薯條", "中可樂").toArray(new Item[0]));
+        baskets.add(menu.getItems("巨無霸").toArray(new Item[0]));
+        baskets.add(menu.getItems("中可樂", "雙層芝士孖堡", "中薯條").toArray(new Item[0]));
+        List<List<Item>> orders = maker.orderAll(baskets);
+
+        // the two distinct misses go to the wrapped order maker at once
+        assertEquals(Arrays.asList(1, 2), batches);
+        for (int i = 0; i < baskets.size(); i++) {
+            assertEquals(dp.order(baskets.get(i)), orders.get(i));
+        }
+        assertEquals(1, maker.getHitCount());
+        assertEquals(4, maker.getMissCount());
+        assertEquals(3, maker.size());
+
+        maker.orderAll(baskets);
+        assertEquals(2, batches.size());
+        assertEquals(5, maker.getHitCount());
+    }
+
+    @Test
+    public void testEviction() {
+        CachingOrderMaker maker = (CachingOrderMaker) getOrderMaker();
+        maker.order(getSimpleMenu().getItems("中薯條").toArray(new Item[0]));
+        maker.order(getSimpleMenu().getItems("中可樂").toArray(new Item[0]));
+        maker.order(getSimpleMenu().getItems("中薯條").toArray(new Item[0]));
+        maker.order(getSimpleMenu().getItems("巨無霸").toArray(new Item[0]));
+
+        // 中可樂 is least recently used
+        assertEquals(2, maker.size());
+        assertEquals(1, maker.getEvictionCount());
+        maker.order(getSimpleMenu().getItems("中薯條").toArray(new Item[0]));
+        assertEquals(2, maker.getHitCount());
+        maker.order(getSimpleMenu().getItems("中可樂").toArray(new Item[0]));
+        assertEquals(4, maker.getMissCount());
+    }
+
+    @Test
+    public void testMenuChange() {
+        final SimpleMenu simpleMenu = new SimpleMenu();
+        final Map<String, Item> reloaded = new HashMap<String, Item>(simpleMenu.getAllItems());
+        final boolean[] changed = new boolean[1];
+        Menu menu = new Menu() {
+            public Map<String, Item> getAllItems() {
+                return changed[0] ? reloaded : simpleMenu.getAllItems();
+            }
+
+            public List<Item> getItems(String... names) {
+                return simpleMenu.getItems(names);
+            }
+
+            public double getOrderPrice(List<Item> items) {
+                return simpleMenu.getOrderPrice(items);
+            }
+
+            public long getOrderPriceCents(List<Item> items) {
+                return simpleMenu.getOrderPriceCents(items);
+            }
+        };
+
+        CachingOrderMaker maker = new CachingOrderMaker(new DynamicProgrammingOrderMaker(simpleMenu), menu, 10);
+        maker.order(getSimpleMenu().getItems("中薯條").toArray(new Item[0]));
+        maker.order(getSimpleMenu().getItems("中薯條").toArray(new Item[0]));
+        assertEquals(1, maker.getHitCount());
+
+        changed[0] = true;
+        maker.order(getSimpleMenu().getItems("中薯條").toArray(new Item[0]));
+        assertEquals(1, maker.getHitCount());
+        assertEquals(2, maker.getMissCount());
+    }
+}
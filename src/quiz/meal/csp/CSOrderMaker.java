@@ -19,10 +19,12 @@ import jopt.csp.variable.PropagationFailureException;
 
 import org.apache.log4j.Logger;
 
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.CompiledMenu;
 import quiz.meal.Menu;
+import quiz.meal.MenuListener;
 import quiz.meal.OrderHelper;
-import quiz.meal.OrderMaker;
-import quiz.meal.SimpleMenu;
+import quiz.meal.metrics.MetricsListener;
 import quiz.meal.model.Food;
 import quiz.meal.model.Item;
 import quiz.meal.model.Meal;
@@ -33,18 +35,58 @@ import quiz.meal.model.Meal;
  * @author siuying
  * @see http://www.reality.hk/articles/2009/04/22/960/
  */
-public class CSOrderMaker implements OrderMaker {
+public class CSOrderMaker extends AbstractOrderMaker implements MenuListener {
+    /**
+     * How the constraint model is built for each order.
+     */
+    public enum Mode {
+        /** Build the whole model from the menu items on every order */
+        PER_CALL,
+        /**
+         * Build a sparse model on every order, with variables for the wanted food
+         * and the meals they can form only, found through the menu indexed once
+         */
+        SPARSE
+    }
+
     private Logger log = Logger.getLogger(CSOrderMaker.class.getName());    
-    private Menu menu;
-    private Item[] items;
+    private Mode mode;
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param menu menu to order from, such as a PrunedMenu for fewer variables
+     */
+    public CSOrderMaker(Menu menu, Mode mode) {
+        this(new CompiledMenu(menu), mode);
+    }
 
-    public CSOrderMaker() {
-        menu = new SimpleMenu();
-        items = menu.getAllItems().values().toArray(new Item[0]);
+    /**
+     * @param menu compiled menu to order from, shared with other order makers
+     */
+    public CSOrderMaker(CompiledMenu menu, Mode mode) {
+        this.mode = mode;
+        this.snapshot = new Snapshot(menu);
+    }
+
+    /**
+     * Compile the new menu. Orders already being solved finish with the old one.
+     */
+    @Override
+    public void menuChanged(Menu menu) {
+        snapshot = new Snapshot(new CompiledMenu(menu));
     }
 
     @Override
     public List<Item> order(Item... wantedItems) {
+        Snapshot snapshot = this.snapshot;
+        if (mode == Mode.SPARSE) {
+            return orderSparse(snapshot.compiledMenu, wantedItems);
+        }
+
+        Item[] items = snapshot.items;
+
+        MetricsListener metrics = getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
         CspSolver solver = CspSolver.createSolver();
         CspVariableFactory varFactory = solver.getVarFactory();
         solver.setAutoPropagate(true);
@@ -66,7 +108,7 @@ public class CSOrderMaker implements OrderMaker {
             for (int i = 0; i < items.length; i++) {
                 Item item = items[i];
                 if (item instanceof Food) {
-                    createFoodConstraint(solver, foodCount, orderVar, orderVar.get(i), (Food) item);
+                    createFoodConstraint(solver, items, foodCount, orderVar, orderVar.get(i), (Food) item);
                 }                
             }
             
@@ -76,7 +118,7 @@ public class CSOrderMaker implements OrderMaker {
                 Item item = items[i];
                 CspIntVariable oX = orderVar.get(i);
 
-                int itemPrice = (int) item.getPrice() * 10;
+                int itemPrice = getIntPrice(item);
                 if (priceExpr == null) {
                     priceExpr = oX.multiply(itemPrice);
                 } else {
@@ -89,6 +131,7 @@ public class CSOrderMaker implements OrderMaker {
 
         }
         
+        long propagated = metrics == null ? 0 : System.nanoTime();
         SearchTechniques tech = solver.getSearchTechniques();
         SearchGoals goals = solver.getSearchGoals();
         SearchGoal minimizePriceGoal = goals.minimize(priceExpr);
@@ -96,12 +139,141 @@ public class CSOrderMaker implements OrderMaker {
         SearchActions actions = solver.getSearchActions();
         SearchAction action = actions.generate(orderVar.toArray(new CspIntVariable[0]));            
         solver.solve(action, minimizePriceGoal, tech.dfs());
-        log.info(" result order = " + orderVar);
+        if (metrics != null) {
+            metrics.constraintsSolved(orderVar.size(), propagated - start, System.nanoTime() - propagated);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(" result order = " + orderVar);
+        }
 
-        return getOrderBySolution(items, orderVar);
+        return getOrderBySolution(snapshot.menu, items, orderVar);
     }
     
-    private void createFoodConstraint(CspSolver solver, Map<Item, Integer> foodCount, 
+    /**
+     * Solve the order with a sparse model built for it from the compiled menu.
+     * Only the wanted food and the meals which can be formed by them get a
+     * variable, the rest of the menu can never be ordered.
+     */
+    private List<Item> orderSparse(CompiledMenu compiled, Item... wantedItems) {
+        MetricsListener metrics = getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        CspSolver solver = CspSolver.createSolver();
+        CspVariableFactory varFactory = solver.getVarFactory();
+        solver.setAutoPropagate(true);
+
+        int[] foodCount = compiled.getFoodCount(Arrays.asList(wantedItems));
+
+        // create variable for wanted food and usable meals
+        List<Item> orderItems = new ArrayList<Item>();
+        List<CspIntVariable> orderVar = new ArrayList<CspIntVariable>();
+        CspIntVariable[] foodVar = new CspIntVariable[compiled.getFoodSize()];
+        CspIntVariable[] mealVar = new CspIntVariable[compiled.getMealSize()];
+        CspIntExpr priceExpr = null;
+        for (int f = 0; f < foodVar.length; f++) {
+            if (foodCount[f] == 0) {
+                continue;
+            }
+
+            Food food = compiled.getFood(f);
+            foodVar[f] = varFactory.intVar(food.getName(), 0, foodCount[f]);
+            orderItems.add(food);
+            orderVar.add(foodVar[f]);
+            priceExpr = addPrice(priceExpr, foodVar[f], compiled.getFoodPrice(f));
+
+            for (int m : compiled.getMealsWithFood(f)) {
+                int max = mealVar[m] == null ? getMaxMealCount(compiled, m, foodCount) : 0;
+                if (max > 0) {
+                    Meal meal = compiled.getMeal(m);
+                    mealVar[m] = varFactory.intVar(meal.getName(), 0, max);
+                    orderItems.add(meal);
+                    orderVar.add(mealVar[m]);
+                    priceExpr = addPrice(priceExpr, mealVar[m], compiled.getMealPrice(m));
+                }
+            }
+        }
+
+        try {
+            // ordered_food(X) + SUM(ordered_meal_with_food(X)) = wanted_food(x)
+            for (int f = 0; f < foodVar.length; f++) {
+                if (foodVar[f] == null) {
+                    continue;
+                }
+
+                CspIntExpr sum = foodVar[f];
+                for (int m : compiled.getMealsWithFood(f)) {
+                    CspIntVariable oM = mealVar[m];
+                    if (oM != null) {
+                        int need = getMealFoodNeed(compiled, m, f);
+                        sum = sum.add(need == 1 ? oM : oM.multiply(need));
+                    }
+                }
+                solver.addConstraint(sum.eq(foodCount[f]));
+            }
+        } catch (PropagationFailureException e) {
+            log.error("error propagate constraint", e);
+        }
+
+        if (priceExpr == null) {
+            return new ArrayList<Item>();
+        }
+
+        long propagated = metrics == null ? 0 : System.nanoTime();
+        SearchGoal minimizePriceGoal = solver.getSearchGoals().minimize(priceExpr);
+        SearchAction action = solver.getSearchActions().generate(orderVar.toArray(new CspIntVariable[0]));
+        solver.solve(action, minimizePriceGoal, solver.getSearchTechniques().dfs());
+        if (metrics != null) {
+            metrics.constraintsSolved(orderVar.size(), propagated - start, System.nanoTime() - propagated);
+        }
+
+        List<Item> result = new ArrayList<Item>();
+        for (int i = 0; i < orderItems.size(); i++) {
+            int val = orderVar.get(i).getMin();
+            for (int j = 0; j < val; j++) {
+                result.add(orderItems.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return how many of meal m can be formed by the wanted food
+     */
+    private int getMaxMealCount(CompiledMenu compiled, int m, int[] foodCount) {
+        int[] food = compiled.getMealFood(m);
+        int[] need = compiled.getMealFoodNeed(m);
+        int max = Integer.MAX_VALUE;
+        for (int i = 0; i < food.length; i++) {
+            max = Math.min(max, foodCount[food[i]] / need[i]);
+        }
+        return max;
+    }
+
+    /**
+     * @return how many of food f meal m contains
+     */
+    private int getMealFoodNeed(CompiledMenu compiled, int m, int f) {
+        int[] food = compiled.getMealFood(m);
+        for (int i = 0; i < food.length; i++) {
+            if (food[i] == f) {
+                return compiled.getMealFoodNeed(m)[i];
+            }
+        }
+        return 0;
+    }
+
+    private CspIntExpr addPrice(CspIntExpr priceExpr, CspIntVariable oX, long price) {
+        CspIntExpr itemPrice = oX.multiply((int) price);
+        return priceExpr == null ? itemPrice : priceExpr.add(itemPrice);
+    }
+
+    /**
+     * use integer cents because jOpt cannot work with float!
+     */
+    private int getIntPrice(Item item) {
+        return (int) item.getPriceCents();
+    }
+
+    private void createFoodConstraint(CspSolver solver, Item[] items, Map<Item, Integer> foodCount, 
             List<CspIntVariable> orderVar, CspIntVariable oX, Food food) throws PropagationFailureException {
         CspIntExpr sum = oX;
         for (int j = 0; j < items.length; j++) {
@@ -122,7 +294,7 @@ public class CSOrderMaker implements OrderMaker {
         }
     }
     
-    private List<Item> getOrderBySolution(Item[] items, List<CspIntVariable> orderItemCount) {
+    private List<Item> getOrderBySolution(Menu menu, Item[] items, List<CspIntVariable> orderItemCount) {
         List<String> orderItemNames = new ArrayList<String>();
         for(int i=0; i<items.length; i++) {
             // number of order item i
@@ -134,4 +306,20 @@ public class CSOrderMaker implements OrderMaker {
         }
         return menu.getItems(orderItemNames.toArray(new String[orderItemNames.size()]));
     }
+
+    /**
+     * The menu, its items in variable order and its compiled form, replaced
+     * together when the menu is reloaded.
+     */
+    private static class Snapshot {
+        private final Menu menu;
+        private final Item[] items;
+        private final CompiledMenu compiledMenu;
+
+        public Snapshot(CompiledMenu compiledMenu) {
+            this.menu = compiledMenu.getMenu();
+            this.items = menu.getAllItems().values().toArray(new Item[0]);
+            this.compiledMenu = compiledMenu;
+        }
+    }
 }
@@ -5,6 +5,6 @@ import quiz.meal.OrderMaker;
 
 public class CSOrderMakerTest extends AbstractOrderMakerTest {
     public OrderMaker getOrderMaker() {
-        return new CSOrderMaker();
+        return new CSOrderMaker(getSimpleMenu(), CSOrderMaker.Mode.PER_CALL);
     }
 }
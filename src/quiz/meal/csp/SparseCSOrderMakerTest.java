@@ -0,0 +1,39 @@
+package quiz.meal.csp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.OrderMaker;
+import quiz.meal.csp.CSOrderMaker.Mode;
+import quiz.meal.metrics.AtomicMetrics;
+import quiz.meal.model.Item;
+
+public class SparseCSOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        return new CSOrderMaker(getSimpleMenu(), Mode.SPARSE);
+    }
+
+    @Test
+    public void testSparseModel() {
+        Item[] wanted = getSimpleMenu().getItems("雙層芝士孖堡", "中薯條", "中可樂", "魚柳飽").toArray(new Item[0]);
+
+        AtomicMetrics perCall = new AtomicMetrics();
+        CSOrderMaker perCallMaker = new CSOrderMaker(getSimpleMenu(), Mode.PER_CALL);
+        perCallMaker.setMetrics(perCall);
+        List<Item> expected = perCallMaker.order(wanted);
+
+        AtomicMetrics sparse = new AtomicMetrics();
+        CSOrderMaker sparseMaker = new CSOrderMaker(getSimpleMenu(), Mode.SPARSE);
+        sparseMaker.setMetrics(sparse);
+        List<Item> order = sparseMaker.order(wanted);
+
+        // a variable for every menu item, against the 4 wanted food and their 2 meals
+        assertEquals(getSimpleMenu().getAllItems().size(), perCall.getConstraintVariables().getMax());
+        assertEquals(6, sparse.getConstraintVariables().getMax());
+        assertEquals(getSimpleMenu().getOrderPriceCents(expected), getSimpleMenu().getOrderPriceCents(order));
+    }
+}
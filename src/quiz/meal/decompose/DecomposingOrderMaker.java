@@ -0,0 +1,215 @@
+package quiz.meal.decompose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * Split a basket into groups of food no meal links, and order each group with
+ * another order maker.
+ *
+ * Only the meals saving money and fitting in the basket link their food, since
+ * no cheapest order needs any other meal. Food in no such meal is bought alone
+ * without asking the order maker at all. The orders of the groups are merged,
+ * meals first, so the order maker searches a few small baskets instead of one
+ * large one.
+ *
+ * @author siuying
+ */
+public class DecomposingOrderMaker extends AbstractOrderMaker implements MenuListener {
+    private final OrderMaker orderMaker;
+    private volatile CompiledMenu menu;
+    private boolean parallel;
+
+    /**
+     * @param menu menu used by the order maker
+     * @param orderMaker order maker to order each group of food
+     */
+    public DecomposingOrderMaker(Menu menu, OrderMaker orderMaker) {
+        this(new CompiledMenu(menu), orderMaker);
+    }
+
+    public DecomposingOrderMaker(CompiledMenu menu, OrderMaker orderMaker) {
+        this.menu = menu;
+        this.orderMaker = orderMaker;
+    }
+
+    @Override
+    public List<Item> order(Item... wantedItems) {
+        CompiledMenu menu = this.menu;
+        List<Food> wantedFood = OrderHelper.getItemAsFoodList(Arrays.asList(wantedItems));
+        int[] foodCount = new int[menu.getFoodSize()];
+        for (Food food : wantedFood) {
+            int f = menu.findFoodOrdinal(food);
+            if (f < 0) {
+                // let the order maker tell about the food not on the menu
+                return orderMaker.order(wantedItems);
+            }
+            foodCount[f]++;
+        }
+
+        // union the food of every meal worth using
+        int[] parent = new int[foodCount.length];
+        boolean[] linked = new boolean[foodCount.length];
+        for (int f = 0; f < parent.length; f++) {
+            parent[f] = f;
+        }
+        for (int wanted = 0; wanted < foodCount.length; wanted++) {
+            if (foodCount[wanted] == 0) {
+                continue;
+            }
+            for (int m : menu.getMealsWithFood(wanted)) {
+                int[] food = menu.getMealFood(m);
+                // a meal that fits has all its food wanted, take it from its first
+                if (food[0] != wanted || menu.getMealSaving(m) <= 0 || !fits(menu, m, foodCount)) {
+                    continue;
+                }
+                for (int f : food) {
+                    linked[f] = true;
+                    parent[find(parent, f)] = find(parent, food[0]);
+                }
+            }
+        }
+
+        // food of each group, and the food linked to nothing
+        List<Item> alone = new ArrayList<Item>();
+        List<List<Item>> groups = new ArrayList<List<Item>>();
+        int[] groupOf = new int[foodCount.length];
+        Arrays.fill(groupOf, -1);
+        for (Food food : wantedFood) {
+            int f = menu.findFoodOrdinal(food);
+            if (!linked[f]) {
+                alone.add(food);
+                continue;
+            }
+
+            int root = find(parent, f);
+            if (groupOf[root] < 0) {
+                groupOf[root] = groups.size();
+                groups.add(new ArrayList<Item>());
+            }
+            groups.get(groupOf[root]).add(food);
+        }
+
+        if (alone.isEmpty() && groups.size() == 1) {
+            return orderMaker.order(wantedItems);
+        }
+
+        List<Item> mealAndFood = new ArrayList<Item>();
+        List<Item> foodToBuy = new ArrayList<Item>();
+        for (List<Item> order : orderGroups(groups)) {
+            for (Item item : order) {
+                (item instanceof Meal ? mealAndFood : foodToBuy).add(item);
+            }
+        }
+        mealAndFood.addAll(foodToBuy);
+        mealAndFood.addAll(alone);
+        return mealAndFood;
+    }
+
+    /**
+     * Compile the new menu. The order maker must be told about it on its own.
+     */
+    @Override
+    public void menuChanged(Menu menu) {
+        this.menu = new CompiledMenu(menu);
+    }
+
+    /**
+     * @return whether groups are ordered in parallel on the fork-join pool
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @param parallel whether to order groups in parallel on the fork-join pool,
+     * worth it when the order maker is slow on each group
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return the order maker ordering each group of food
+     */
+    public OrderMaker getOrderMaker() {
+        return orderMaker;
+    }
+
+    private List<List<Item>> orderGroups(List<List<Item>> groups) {
+        List<List<Item>> orders = new ArrayList<List<Item>>(groups.size());
+        if (!parallel || groups.size() < 2) {
+            for (List<Item> group : groups) {
+                orders.add(orderMaker.order(group.toArray(new Item[group.size()])));
+            }
+            return orders;
+        }
+
+        final List<GroupTask> tasks = new ArrayList<GroupTask>(groups.size());
+        for (List<Item> group : groups) {
+            tasks.add(new GroupTask(orderMaker, group));
+        }
+        getPool().invoke(new RecursiveTask<Void>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(tasks);
+                return null;
+            }
+        });
+        for (GroupTask task : tasks) {
+            orders.add(task.join());
+        }
+        return orders;
+    }
+
+    private static boolean fits(CompiledMenu menu, int meal, int[] foodCount) {
+        int[] food = menu.getMealFood(meal);
+        int[] need = menu.getMealFoodNeed(meal);
+        for (int i = 0; i < food.length; i++) {
+            if (need[i] > foodCount[food[i]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int find(int[] parent, int f) {
+        while (parent[f] != f) {
+            parent[f] = parent[parent[f]];
+            f = parent[f];
+        }
+        return f;
+    }
+
+    private static class GroupTask extends RecursiveTask<List<Item>> {
+        private static final long serialVersionUID = 1L;
+
+        private final OrderMaker orderMaker;
+        private final List<Item> group;
+
+        public GroupTask(OrderMaker orderMaker, List<Item> group) {
+            this.orderMaker = orderMaker;
+            this.group = group;
+        }
+
+        @Override
+        protected List<Item> compute() {
+            return orderMaker.order(group.toArray(new Item[group.size()]));
+        }
+    }
+}
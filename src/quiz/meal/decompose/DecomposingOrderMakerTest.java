@@ -0,0 +1,77 @@
+package quiz.meal.decompose;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+import quiz.meal.search.TreeSearchOrderMaker;
+
+public class DecomposingOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        Menu menu = new SimpleMenu();
+        return new DecomposingOrderMaker(menu, new TreeSearchOrderMaker(menu));
+    }
+
+    @Test
+    public void testGroups() {
+        Menu menu = new SimpleMenu();
+        final List<String> baskets = new ArrayList<String>();
+        OrderMaker recording = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                synchronized (baskets) {
+                    baskets.add(OrderHelper.getBasketKey(Arrays.asList(wantedItems)));
+                }
+                return Arrays.asList(wantedItems);
+            }
+        };
+
+        // the small wings are in no meal, and the sides of each meal link it
+        // with the other
+        List<Item> wanted = menu.getItems("脆香雞翼 (2件)", "雙層芝士孖堡", "中薯條", "中可樂", "魚柳飽");
+        DecomposingOrderMaker maker = new DecomposingOrderMaker(menu, recording);
+        List<Item> order = maker.order(wanted.toArray(new Item[0]));
+        assertEquals(1, baskets.size());
+        assertEquals(OrderHelper.getBasketKey(menu.getItems("雙層芝士孖堡", "中薯條", "中可樂", "魚柳飽")), baskets.get(0));
+        assertEquals(OrderHelper.getBasketKey(wanted), OrderHelper.getBasketKey(order));
+
+        // no meal fits, the order maker is not asked at all
+        baskets.clear();
+        order = maker.order(menu.getItems("麥樂雞 (9件)", "魚柳飽", "中薯條").toArray(new Item[0]));
+        assertEquals(0, baskets.size());
+        assertEquals(3, order.size());
+
+    }
+
+    @Test
+    public void testSameAsOrderMaker() {
+        MenuGenerator menuGenerator = new MenuGenerator(4);
+        menuGenerator.setSides(8);
+        Menu menu = menuGenerator.generateMenu(30);
+        OrderMaker dp = new DynamicProgrammingOrderMaker(menu);
+        DecomposingOrderMaker maker = new DecomposingOrderMaker(menu, dp);
+        maker.setParallel(true);
+
+        BasketGenerator generator = new BasketGenerator(menu, 9);
+        for (int i = 0; i < 100; i++) {
+            Item[] basket = generator.randomBasket(2 + i % 10);
+            List<Item> order = maker.order(basket);
+            assertEquals(menu.getOrderPriceCents(dp.order(basket)), menu.getOrderPriceCents(order));
+            assertEquals(OrderHelper.getBasketKey(Arrays.asList(basket)), OrderHelper.getBasketKey(order));
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package quiz.meal.dp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.OrderMaker;
+import quiz.meal.OrderSession;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+
+/**
+ * Find the cheapest order by dynamic programming over the multiset of wanted food.
+ *
+ * The wanted food counts are packed into a mixed-radix integer, food i having radix
+ * count(i) + 1, so every remaining multiset of the basket has its own long key. The
+ * minimum cost of each remaining multiset is memoized and solved only once.
+ *
+ * A batch of orders shares one memo table, packed with the largest count of each
+ * food in the batch, since the remaining multisets of different baskets overlap.
+ *
+ * An order session keeps its memo table across the changes of its basket, so
+ * adding or removing an item solves only the multisets not met before.
+ *
+ * @author siuying
+ */
+public class DynamicProgrammingOrderMaker extends AbstractOrderMaker implements MenuListener {
+    private volatile CompiledMenu menu;
+
+    public DynamicProgrammingOrderMaker(Menu menu) {
+        this(new CompiledMenu(menu));
+    }
+
+    public DynamicProgrammingOrderMaker(CompiledMenu menu) {
+        this.menu = menu;
+    }
+
+    @Override
+    public List<Item> order(Item... wantedItems) {
+        CompiledMenu menu = this.menu;
+        int[] foodCount = menu.getFoodCount(Arrays.asList(wantedItems));
+        return new Table(menu, foodCount, false).order(foodCount);
+    }
+
+    /**
+     * Compile the new menu. Orders already being made finish with the old one.
+     */
+    @Override
+    public void menuChanged(Menu menu) {
+        this.menu = new CompiledMenu(menu);
+    }
+
+    @Override
+    protected OrderMaker prepareBatch(List<Item[]> baskets) {
+        final CompiledMenu menu = this.menu;
+        int[] maxCount = new int[menu.getFoodSize()];
+        for (Item[] basket : baskets) {
+            int[] foodCount = menu.getFoodCount(Arrays.asList(basket));
+            for (int f = 0; f < maxCount.length; f++) {
+                maxCount[f] = Math.max(maxCount[f], foodCount[f]);
+            }
+        }
+
+        final Table table;
+        try {
+            table = new Table(menu, maxCount, true);
+        } catch (IllegalArgumentException e) {
+            // the batch is too large to pack together, solve each basket alone
+            return this;
+        }
+
+        return new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                return table.order(menu.getFoodCount(Arrays.asList(wantedItems)));
+            }
+        };
+    }
+
+    /**
+     * @return a session keeping its memo table across changes, so that only the
+     * remaining multisets not met before are solved
+     */
+    @Override
+    public OrderSession openSession() {
+        return new Session(menu);
+    }
+
+    /**
+     * @return the compiled menu this order maker is using
+     */
+    public CompiledMenu getMenu() {
+        return menu;
+    }
+
+    /**
+     * Order session on one memo table, grown when the basket outgrows it.
+     *
+     * The table room for each food is doubled when it is outgrown, so that adding
+     * n items grows it about log(n) times. Removing items never shrinks it, every
+     * smaller basket being packed already.
+     */
+    private static class Session implements OrderSession {
+        private final CompiledMenu menu;
+        private final List<Item> wantedItems = new ArrayList<Item>();
+        private final int[] foodCount;
+        private final int[] room;
+        private Table table;
+        private List<Item> order = new ArrayList<Item>();
+        private long priceCents;
+        private boolean changed;
+
+        public Session(CompiledMenu menu) {
+            this.menu = menu;
+            foodCount = new int[menu.getFoodSize()];
+            room = new int[menu.getFoodSize()];
+            table = new Table(menu, room, false);
+        }
+
+        @Override
+        public void add(Item item) {
+            int[] count = menu.getFoodCount(Collections.singletonList(item));
+            boolean outgrown = false;
+            for (int f = 0; f < count.length; f++) {
+                count[f] += foodCount[f];
+                outgrown |= count[f] > room[f];
+            }
+
+            if (outgrown) {
+                int[] larger = new int[room.length];
+                for (int f = 0; f < room.length; f++) {
+                    larger[f] = count[f] > room[f] ? Math.max(2 * room[f], count[f]) : room[f];
+                }
+                Table grown;
+                try {
+                    grown = table.grow(larger);
+                } catch (IllegalArgumentException e) {
+                    // no room to double, make just enough
+                    for (int f = 0; f < room.length; f++) {
+                        larger[f] = Math.max(room[f], count[f]);
+                    }
+                    grown = table.grow(larger);
+                }
+                table = grown;
+                System.arraycopy(larger, 0, room, 0, room.length);
+            }
+
+            System.arraycopy(count, 0, foodCount, 0, foodCount.length);
+            wantedItems.add(item);
+            changed = true;
+        }
+
+        @Override
+        public void remove(Item item) {
+            int i = wantedItems.lastIndexOf(item);
+            if (i < 0) {
+                throw new IllegalArgumentException("Sorry you have not ordered " + item.getName() + "!");
+            }
+            int[] count = menu.getFoodCount(Collections.singletonList(item));
+            for (int f = 0; f < count.length; f++) {
+                foodCount[f] -= count[f];
+            }
+            wantedItems.remove(i);
+            changed = true;
+        }
+
+        @Override
+        public List<Item> getWantedItems() {
+            return Collections.unmodifiableList(wantedItems);
+        }
+
+        @Override
+        public List<Item> getOrder() {
+            if (changed) {
+                order = table.order(foodCount);
+                priceCents = menu.getMenu().getOrderPriceCents(order);
+                changed = false;
+            }
+            return Collections.unmodifiableList(order);
+        }
+
+        @Override
+        public long getOrderPriceCents() {
+            getOrder();
+            return priceCents;
+        }
+    }
+
+    /**
+     * Minimum cost of a remaining multiset, and the choice making it: -f - 1 to
+     * buy basket food f alone, or the usable meal number.
+     */
+    private static class Solved {
+        private final long cost;
+        private final int choice;
+
+        public Solved(long cost, int choice) {
+            this.cost = cost;
+            this.choice = choice;
+        }
+    }
+
+    private static final Solved NOTHING = new Solved(0, 0);
+
+    /**
+     * A remaining multiset being solved by Table.minCost(): its first food,
+     * the next choice to try, the choice tried last and the best one so far.
+     */
+    private static class Frame {
+        private final long key;
+        private final int f;
+        private int next;
+        private int tried;
+        private long best = Long.MAX_VALUE;
+        private int bestChoice;
+
+        public Frame(long key, int[] remain) {
+            this.key = key;
+            int f = 0;
+            while (remain[f] == 0) {
+                f++;
+            }
+            this.f = f;
+        }
+    }
+
+    /**
+     * Packing of the baskets up to a maximum count of each food, the meals usable
+     * with them and the memo tables.
+     *
+     * Basket food are numbered 0..n-1 in the order of their menu ordinal.
+     */
+    private static class Table {
+        private final CompiledMenu menu;
+        private int[] local;
+        private int[] foods;
+        private long[] place;
+
+        // usable meals, with their basket food, count of each and packed size
+        private int[] usable;
+        private int[][] mealFood;
+        private int[][] mealNeed;
+        private long[] mealKey;
+        // usable meals containing each basket food
+        private int[][] mealsByFood;
+
+        // the cost and choice of each solved key, put together so that a
+        // thread finding one always finds the other
+        private Map<Long, Solved> memo;
+
+        /**
+         * @param menu menu the food ordinals are of
+         * @param foodCount maximum count of each food ordinal
+         * @param shared whether the table is used by many threads at once
+         */
+        public Table(CompiledMenu menu, int[] foodCount, boolean shared) {
+            this.menu = menu;
+            if (shared) {
+                memo = new ConcurrentHashMap<Long, Solved>();
+            } else {
+                memo = new HashMap<Long, Solved>();
+            }
+
+            local = new int[foodCount.length];
+            int size = 0;
+            for (int f = 0; f < foodCount.length; f++) {
+                local[f] = foodCount[f] > 0 ? size++ : -1;
+            }
+
+            foods = new int[size];
+            place = new long[size];
+            long weight = 1;
+            for (int f = 0; f < foodCount.length; f++) {
+                if (local[f] < 0) {
+                    continue;
+                }
+
+                int radix = foodCount[f] + 1;
+                if (weight > Long.MAX_VALUE / radix) {
+                    throw new IllegalArgumentException("Sorry the order is too large, please order less!");
+                }
+                int i = local[f];
+                foods[i] = f;
+                place[i] = weight;
+                weight *= radix;
+            }
+
+            // a meal is usable when the basket has all of its food
+            List<Integer> usableList = new ArrayList<Integer>();
+            boolean[] seen = new boolean[menu.getMealSize()];
+            for (int f : foods) {
+                for (int m : menu.getMealsWithFood(f)) {
+                    if (!seen[m]) {
+                        seen[m] = true;
+                        if (isUsable(m, foodCount)) {
+                            usableList.add(m);
+                        }
+                    }
+                }
+            }
+
+            usable = new int[usableList.size()];
+            mealFood = new int[usable.length][];
+            mealNeed = new int[usable.length][];
+            mealKey = new long[usable.length];
+            int[] mealsWithFood = new int[size];
+            for (int u = 0; u < usable.length; u++) {
+                int m = usableList.get(u);
+                usable[u] = m;
+                mealFood[u] = menu.getMealFood(m).clone();
+                mealNeed[u] = menu.getMealFoodNeed(m);
+                for (int i = 0; i < mealFood[u].length; i++) {
+                    int f = local[mealFood[u][i]];
+                    mealFood[u][i] = f;
+                    mealKey[u] += mealNeed[u][i] * place[f];
+                    mealsWithFood[f]++;
+                }
+            }
+
+            mealsByFood = new int[size][];
+            for (int f = 0; f < size; f++) {
+                mealsByFood[f] = new int[mealsWithFood[f]];
+                mealsWithFood[f] = 0;
+            }
+            for (int u = 0; u < usable.length; u++) {
+                for (int f : mealFood[u]) {
+                    mealsByFood[f][mealsWithFood[f]++] = u;
+                }
+            }
+        }
+
+        /**
+         * @param foodCount maximum count of each food ordinal, at least the
+         * maximum of this table
+         * @return a table for the larger baskets, knowing the costs already in
+         * this one
+         */
+        public Table grow(int[] foodCount) {
+            Table table = new Table(menu, foodCount, false);
+
+            // a meal usable here is usable there, but may have another number
+            int[] usableThere = new int[menu.getMealSize()];
+            for (int u = 0; u < table.usable.length; u++) {
+                usableThere[table.usable[u]] = u;
+            }
+
+            long[] placeThere = new long[foods.length];
+            for (int f = 0; f < foods.length; f++) {
+                placeThere[f] = table.place[table.local[foods[f]]];
+            }
+
+            for (Map.Entry<Long, Solved> entry : memo.entrySet()) {
+                long key = entry.getKey();
+                long keyThere = 0;
+                for (int f = foods.length - 1; f >= 0; f--) {
+                    keyThere += key / place[f] * placeThere[f];
+                    key %= place[f];
+                }
+
+                int c = entry.getValue().choice;
+                int choiceThere = c < 0 ? -table.local[foods[-c - 1]] - 1 : usableThere[usable[c]];
+                table.memo.put(keyThere, new Solved(entry.getValue().cost, choiceThere));
+            }
+            return table;
+        }
+
+        private boolean isUsable(int meal, int[] foodCount) {
+            int[] food = menu.getMealFood(meal);
+            int[] need = menu.getMealFoodNeed(meal);
+            for (int i = 0; i < food.length; i++) {
+                if (need[i] > foodCount[food[i]]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param foodCount count of each food ordinal, within the maximum of this table
+         */
+        public List<Item> order(int[] foodCount) {
+            int[] remain = new int[foods.length];
+            long key = 0;
+            for (int f = 0; f < foods.length; f++) {
+                remain[f] = foodCount[foods[f]];
+                key += remain[f] * place[f];
+            }
+            minCost(key, remain);
+
+            // follow the memorized choices to rebuild the order
+            List<Item> mealAndFood = new ArrayList<Item>();
+            List<Food> foodToBuy = new ArrayList<Food>();
+            while (key != 0) {
+                int c = memo.get(key).choice;
+                if (c < 0) {
+                    int f = -c - 1;
+                    foodToBuy.add(menu.getFood(foods[f]));
+                    key -= place[f];
+                } else {
+                    mealAndFood.add(menu.getMeal(usable[c]));
+                    key -= mealKey[c];
+                }
+            }
+            mealAndFood.addAll(foodToBuy);
+            return mealAndFood;
+        }
+
+        /*
+         * Minimum cost of the remaining food, which is both packed in key and
+         * unpacked in remain[].
+         *
+         * The first remaining food must be bought either alone or in one of the
+         * meals containing it, so only those choices are tried. Each choice
+         * left unsolved is pushed on a stack of its own rather than solved by
+         * recursion, since a large basket is as deep as its food.
+         */
+        private long minCost(long key, int[] remain) {
+            if (key == 0) {
+                return 0;
+            }
+            Solved known = memo.get(key);
+            if (known != null) {
+                return known.cost;
+            }
+
+            List<Frame> stack = new ArrayList<Frame>();
+            stack.add(new Frame(key, remain));
+            long childCost = 0;
+            boolean childSolved = false;
+            while (true) {
+                Frame top = stack.get(stack.size() - 1);
+                if (childSolved) {
+                    // the choice tried last is solved, put its food back
+                    int u = top.tried;
+                    long price;
+                    if (u < 0) {
+                        remain[top.f]++;
+                        price = menu.getFoodPrice(foods[top.f]) + childCost;
+                    } else {
+                        take(u, remain, 1);
+                        price = menu.getMealPrice(usable[u]) + childCost;
+                    }
+                    if (price < top.best) {
+                        top.best = price;
+                        top.bestChoice = u < 0 ? -top.f - 1 : u;
+                    }
+                    childSolved = false;
+                }
+
+                // try the next choice, alone first then each meal
+                long childKey = -1;
+                int[] meals = mealsByFood[top.f];
+                while (childKey < 0 && top.next <= meals.length) {
+                    int next = top.next++;
+                    if (next == 0) {
+                        remain[top.f]--;
+                        top.tried = -1;
+                        childKey = top.key - place[top.f];
+                    } else if (fits(meals[next - 1], remain)) {
+                        top.tried = meals[next - 1];
+                        take(top.tried, remain, -1);
+                        childKey = top.key - mealKey[top.tried];
+                    }
+                }
+
+                if (childKey >= 0) {
+                    Solved child = childKey == 0 ? NOTHING : memo.get(childKey);
+                    if (child != null) {
+                        childCost = child.cost;
+                        childSolved = true;
+                    } else {
+                        stack.add(new Frame(childKey, remain));
+                    }
+                    continue;
+                }
+
+                // every choice is tried
+                memo.put(top.key, new Solved(top.best, top.bestChoice));
+                stack.remove(stack.size() - 1);
+                if (stack.isEmpty()) {
+                    return top.best;
+                }
+                childCost = top.best;
+                childSolved = true;
+            }
+        }
+
+        private boolean fits(int u, int[] remain) {
+            int[] food = mealFood[u];
+            int[] need = mealNeed[u];
+            for (int i = 0; i < food.length; i++) {
+                if (need[i] > remain[food[i]]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void take(int u, int[] remain, int sign) {
+            int[] food = mealFood[u];
+            int[] need = mealNeed[u];
+            for (int i = 0; i < food.length; i++) {
+                remain[food[i]] += sign * need[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package quiz.meal.dp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.model.Item;
+
+public class DynamicProgrammingOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        return new DynamicProgrammingOrderMaker(new SimpleMenu());
+    }
+
+    @Test
+    public void testLargeGroupOrder() {
+        List<Item> wantedItems = new ArrayList<Item>();
+        List<Item> expectedItems = new ArrayList<Item>();
+        for (int i = 0; i < 12; i++) {
+            wantedItems.addAll(getSimpleMenu().getItems("雙層芝士孖堡", "中薯條", "中可樂"));
+            expectedItems.addAll(getSimpleMenu().getItems("雙層芝士孖堡套餐"));
+        }
+
+        List<Item> orderItems = getOrderMaker().order(wantedItems.toArray(new Item[0]));
+        assertEquals(getSimpleMenu().getOrderPriceCents(expectedItems), getSimpleMenu().getOrderPriceCents(orderItems));
+    }
+
+    @Test
+    public void testDeepBasket() {
+        // as deep as the basket, too deep for a recursive search
+        Item[] wanted = new Item[200000];
+        Arrays.fill(wanted, getSimpleMenu().getItems("中薯條").get(0));
+        List<Item> orderItems = getOrderMaker().order(wanted);
+        assertEquals(wanted.length, orderItems.size());
+        assertEquals(wanted.length * wanted[0].getPriceCents(), getSimpleMenu().getOrderPriceCents(orderItems));
+    }
+}
@@ -0,0 +1,103 @@
+package quiz.meal.dp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.OrderSession;
+import quiz.meal.SimpleMenu;
+import quiz.meal.SimpleOrderSession;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+import quiz.meal.search.TreeSearchOrderMaker;
+
+public class DynamicProgrammingOrderSessionTest {
+
+    @Test
+    public void testAddAndRemove() {
+        Menu menu = new SimpleMenu();
+        OrderSession session = new DynamicProgrammingOrderMaker(menu).openSession();
+        assertTrue(session.getOrder().isEmpty());
+        assertEquals(0, session.getOrderPriceCents());
+
+        for (Item item : menu.getItems("雙層芝士孖堡", "中薯條", "中可樂")) {
+            session.add(item);
+        }
+        assertEquals(menu.getItems("雙層芝士孖堡套餐"), session.getOrder());
+
+        session.remove(menu.getItems("中可樂").get(0));
+        assertEquals(menu.getOrderPriceCents(menu.getItems("雙層芝士孖堡", "中薯條")), session.getOrderPriceCents());
+        assertEquals(menu.getItems("雙層芝士孖堡", "中薯條"), session.getWantedItems());
+    }
+
+    @Test
+    public void testRemoveNotWanted() {
+        Menu menu = new SimpleMenu();
+        OrderSession session = new DynamicProgrammingOrderMaker(menu).openSession();
+        session.add(menu.getItems("中薯條").get(0));
+        try {
+            session.remove(menu.getItems("中可樂").get(0));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(1, session.getWantedItems().size());
+    }
+
+    @Test
+    public void testLargeGroupOrder() {
+        Menu menu = new SimpleMenu();
+        OrderSession session = new DynamicProgrammingOrderMaker(menu).openSession();
+        List<Item> expectedItems = new ArrayList<Item>();
+        for (int i = 0; i < 40; i++) {
+            for (Item item : menu.getItems("雙層芝士孖堡", "中薯條", "中可樂")) {
+                session.add(item);
+                session.getOrder();
+            }
+            expectedItems.addAll(menu.getItems("雙層芝士孖堡套餐"));
+        }
+        assertEquals(menu.getOrderPriceCents(expectedItems), session.getOrderPriceCents());
+    }
+
+    @Test
+    public void testSameAsOrder() {
+        Menu menu = new MenuGenerator(5).generateMenu(15);
+        DynamicProgrammingOrderMaker maker = new DynamicProgrammingOrderMaker(menu);
+        OrderMaker tree = new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.BOUNDED);
+        OrderSession session = maker.openSession();
+        OrderSession simple = new SimpleOrderSession(tree);
+
+        Random random = new Random(7);
+        Item[] items = new BasketGenerator(menu, 11).randomBasket(40);
+        for (int step = 0; step < 60; step++) {
+            List<Item> wanted = session.getWantedItems();
+            if (!wanted.isEmpty() && random.nextInt(3) == 0) {
+                Item item = wanted.get(random.nextInt(wanted.size()));
+                session.remove(item);
+                simple.remove(item);
+            } else {
+                Item item = items[random.nextInt(items.length)];
+                session.add(item);
+                simple.add(item);
+            }
+
+            Item[] basket = session.getWantedItems().toArray(new Item[0]);
+            List<Item> order = session.getOrder();
+            assertEquals(menu.getOrderPriceCents(maker.order(basket)), session.getOrderPriceCents());
+            assertEquals(menu.getOrderPriceCents(order), session.getOrderPriceCents());
+            assertEquals(simple.getOrderPriceCents(), session.getOrderPriceCents());
+            assertEquals(OrderHelper.getBasketKey(session.getWantedItems()),
+                    OrderHelper.getBasketKey(OrderHelper.getItemAsFoodList(order)));
+        }
+    }
+}
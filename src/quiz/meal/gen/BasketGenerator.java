@@ -0,0 +1,112 @@
+package quiz.meal.gen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * Generate wanted-item baskets for a menu, and test cases with their optimal
+ * order in the format of testcase.yml.
+ *
+ * Random baskets pick any food, with fries and drinks mixed in so that meals
+ * can be formed. Adversarial baskets are built from the food of overlapping
+ * meals plus extra sides, which is where the searching order makers explode.
+ *
+ * @author siuying
+ */
+public class BasketGenerator {
+    private final CompiledMenu menu;
+    private final Random random;
+
+    public BasketGenerator(Menu menu, long seed) {
+        this(new CompiledMenu(menu), seed);
+    }
+
+    public BasketGenerator(CompiledMenu menu, long seed) {
+        this.menu = menu;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return a basket of size items, about half of them sides
+     */
+    public Item[] randomBasket(int size) {
+        Item[] basket = new Item[size];
+        for (int i = 0; i < size; i++) {
+            if (random.nextBoolean()) {
+                basket[i] = menu.getFood(random.nextInt(menu.getFoodSize()));
+            } else {
+                basket[i] = randomMealFood();
+            }
+        }
+        return basket;
+    }
+
+    /**
+     * @return a basket of about size items, made of the food of random meals
+     * sharing food with each other, and extra food of random meals; a random
+     * basket if the menu has no meals
+     */
+    public Item[] adversarialBasket(int size) {
+        if (menu.getMealSize() == 0) {
+            return randomBasket(size);
+        }
+
+        List<Item> basket = new ArrayList<Item>();
+        int meal = random.nextInt(menu.getMealSize());
+        while (basket.size() < size) {
+            int[] food = menu.getMealFood(meal);
+            int[] need = menu.getMealFoodNeed(meal);
+            for (int j = 0; j < food.length; j++) {
+                for (int i = 0; i < need[j] && basket.size() < size; i++) {
+                    basket.add(menu.getFood(food[j]));
+                }
+            }
+            if (basket.size() < size && random.nextBoolean()) {
+                basket.add(randomMealFood());
+            }
+
+            // move on to another meal sharing one of the food
+            int[] overlapping = menu.getMealsWithFood(food[random.nextInt(food.length)]);
+            meal = overlapping[random.nextInt(overlapping.length)];
+        }
+        return basket.toArray(new Item[basket.size()]);
+    }
+
+    /**
+     * Write test cases of the baskets in the format of testcase.yml, with the
+     * order made by the reference order maker as the expected order.
+     */
+    public static void writeTestCases(List<Item[]> baskets, OrderMaker reference, Writer out) throws IOException {
+        out.write("---\n");
+        for (Item[] basket : baskets) {
+            List<Item> order = reference.order(basket);
+            List<Item> wanted = new ArrayList<Item>();
+            for (Item item : basket) {
+                wanted.add(item);
+            }
+            out.write(" - [" + OrderHelper.toYaml(wanted) + ", " + OrderHelper.toYaml(order) + "]\n");
+        }
+        out.flush();
+    }
+
+    /*
+     * food of a random meal, or any food if there are no meals
+     */
+    private Item randomMealFood() {
+        if (menu.getMealSize() == 0) {
+            return menu.getFood(random.nextInt(menu.getFoodSize()));
+        }
+        Meal meal = menu.getMeal(random.nextInt(menu.getMealSize()));
+        return meal.getFood().get(random.nextInt(meal.getFood().size()));
+    }
+}
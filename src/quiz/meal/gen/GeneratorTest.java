@@ -0,0 +1,86 @@
+package quiz.meal.gen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ho.yaml.Yaml;
+import org.junit.Test;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+import quiz.meal.search.TreeSearchOrderMaker;
+import quiz.meal.search.TreeSearchOrderMaker.Mode;
+
+public class GeneratorTest {
+
+    @Test
+    public void testYamlRoundTrip() throws Exception {
+        MenuGenerator generator = new MenuGenerator(1);
+        generator.setSides(6);
+        Map<String, Item> items = generator.generate(500);
+
+        StringWriter yaml = new StringWriter();
+        MenuGenerator.writeYaml(items, yaml);
+        Menu menu = new SimpleMenu(new ByteArrayInputStream(yaml.toString().getBytes("UTF-8")));
+
+        assertEquals(items.size(), menu.getAllItems().size());
+        for (Item item : items.values()) {
+            Item loaded = menu.getAllItems().get(item.getName());
+            assertEquals(item.getPriceCents(), loaded.getPriceCents());
+            if (item instanceof Meal) {
+                assertEquals(((Meal) item).getFood(), ((Meal) loaded).getFood());
+            }
+        }
+    }
+
+    @Test
+    public void testMenuWithoutMeals() {
+        Map<String, Item> food = new HashMap<String, Item>();
+        for (Item item : new SimpleMenu().getAllItems().values()) {
+            if (!(item instanceof Meal)) {
+                food.put(item.getName(), item);
+            }
+        }
+        BasketGenerator generator = new BasketGenerator(new SimpleMenu(food), 5);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(8, generator.randomBasket(8).length);
+            assertEquals(10, generator.adversarialBasket(10).length);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTestCases() throws Exception {
+        Menu menu = new MenuGenerator(2).generateMenu(20);
+        BasketGenerator generator = new BasketGenerator(menu, 3);
+        List<Item[]> baskets = new ArrayList<Item[]>();
+        for (int i = 0; i < 20; i++) {
+            baskets.add(generator.randomBasket(8));
+            baskets.add(generator.adversarialBasket(10));
+        }
+
+        StringWriter yaml = new StringWriter();
+        BasketGenerator.writeTestCases(baskets, new DynamicProgrammingOrderMaker(menu), yaml);
+        List<List<List<String>>> testCases = (List<List<List<String>>>) Yaml.load(yaml.toString());
+        assertEquals(baskets.size(), testCases.size());
+
+        TreeSearchOrderMaker maker = new TreeSearchOrderMaker(menu, Mode.BOUNDED);
+        for (List<List<String>> testCase : testCases) {
+            List<Item> wantedItems = menu.getItems(testCase.get(0).toArray(new String[0]));
+            List<Item> expectedItems = menu.getItems(testCase.get(1).toArray(new String[0]));
+            assertTrue(menu.getOrderPriceCents(expectedItems) <= menu.getOrderPriceCents(wantedItems));
+            assertEquals(menu.getOrderPriceCents(expectedItems),
+                    menu.getOrderPriceCents(maker.order(wantedItems.toArray(new Item[0]))));
+        }
+    }
+}
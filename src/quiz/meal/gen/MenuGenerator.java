@@ -0,0 +1,186 @@
+package quiz.meal.gen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * Generate large menus shaped like food.yml, for scale testing.
+ *
+ * The menu has some mains and some sides. Sides alternate between fries-like and
+ * drink-like, the first two being 中薯條 and 中可樂. Every main has a meal with
+ * one side of each kind, and some meals bundle two mains with the sides like
+ * 麥樂雞翼套餐, so that meals overlap on both sides and mains. A few meals
+ * save no money at all, like the legacy bundles of real menus.
+ *
+ * @author siuying
+ */
+public class MenuGenerator {
+    public static final String FRIES = "中薯條";
+    public static final String COKE = "中可樂";
+
+    private final Random random;
+    private int sides = 2;
+    private double comboRatio = 0.2;
+    private double noSavingRatio = 0.05;
+
+    public MenuGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Generate a menu.
+     *
+     * @param mains number of mains, each with its own meal
+     * @return the menu items keyed by name
+     */
+    public Map<String, Item> generate(int mains) {
+        Map<String, Item> items = new HashMap<String, Item>();
+
+        Food[] side = new Food[Math.max(2, sides)];
+        for (int i = 0; i < side.length; i++) {
+            String name = i == 0 ? FRIES : i == 1 ? COKE : "side-" + i;
+            side[i] = food(items, name, 70 + random.nextInt(30));
+        }
+
+        Food[] main = new Food[mains];
+        for (int i = 0; i < mains; i++) {
+            main[i] = food(items, "main-" + i, 70 + random.nextInt(130));
+            meal(items, "meal-" + i, main[i], pickSide(side, 0), pickSide(side, 1));
+        }
+
+        int combos = (int) (mains * comboRatio);
+        for (int i = 0; i < combos && mains > 1; i++) {
+            int first = random.nextInt(mains);
+            int second = (first + 1 + random.nextInt(mains - 1)) % mains;
+            meal(items, "combo-" + i, main[first], main[second], pickSide(side, 0), pickSide(side, 1));
+        }
+        return items;
+    }
+
+    /**
+     * @return a generated menu
+     * @see #generate(int)
+     */
+    public Menu generateMenu(int mains) {
+        return new SimpleMenu(generate(mains));
+    }
+
+    /**
+     * Write the items in the YAML format of food.yml, foods first so that meals
+     * can refer to them.
+     */
+    public static void writeYaml(Map<String, Item> items, Writer out) throws IOException {
+        List<Food> foods = new ArrayList<Food>();
+        List<Meal> meals = new ArrayList<Meal>();
+        for (Item item : items.values()) {
+            if (item instanceof Food) {
+                foods.add((Food) item);
+            } else {
+                meals.add((Meal) item);
+            }
+        }
+        Collections.sort(foods, BY_NAME);
+        Collections.sort(meals, BY_NAME);
+
+        out.write("---\n");
+        Map<Food, String> anchors = new HashMap<Food, String>();
+        for (Food food : foods) {
+            String anchor = "f" + (anchors.size() + 1);
+            anchors.put(food, anchor);
+            out.write(String.format("%s: &%s !%s\n", food.getName(), anchor, Food.class.getName()));
+            out.write(String.format("  name: %s\n", food.getName()));
+            out.write(String.format("  price: %s\n", formatPrice(food.getPriceCents())));
+        }
+        out.write("\n");
+        for (Meal meal : meals) {
+            out.write(String.format("%s: !%s\n", meal.getName(), Meal.class.getName()));
+            out.write(String.format("  name: %s\n", meal.getName()));
+            out.write(String.format("  price: %s\n", formatPrice(meal.getPriceCents())));
+            StringBuilder food = new StringBuilder();
+            for (Food f : meal.getFood()) {
+                String anchor = anchors.get(f);
+                if (anchor == null) {
+                    throw new IllegalArgumentException("food of " + meal.getName() + " is not on the menu: " + f.getName());
+                }
+                food.append(food.length() == 0 ? "*" : ", *").append(anchor);
+            }
+            out.write(String.format("  food: [%s]\n", food));
+        }
+        out.flush();
+    }
+
+    /**
+     * @param sides number of sides, at least 2
+     */
+    public void setSides(int sides) {
+        this.sides = sides;
+    }
+
+    /**
+     * @param comboRatio number of two-main meals per main
+     */
+    public void setComboRatio(double comboRatio) {
+        this.comboRatio = comboRatio;
+    }
+
+    /**
+     * @param noSavingRatio fraction of meals costing as much as their food
+     */
+    public void setNoSavingRatio(double noSavingRatio) {
+        this.noSavingRatio = noSavingRatio;
+    }
+
+    private Food pickSide(Food[] side, int kind) {
+        int pairs = side.length / 2;
+        return side[2 * random.nextInt(pairs) + kind];
+    }
+
+    private Food food(Map<String, Item> items, String name, long priceDimes) {
+        Food food = new Food();
+        food.setName(name);
+        food.setPrice(priceDimes / 10.0);
+        items.put(name, food);
+        return food;
+    }
+
+    private void meal(Map<String, Item> items, String name, Food... food) {
+        long priceDimes = 0;
+        for (Food f : food) {
+            priceDimes += f.getPriceCents() / 10;
+        }
+        if (random.nextDouble() >= noSavingRatio) {
+            priceDimes -= 30 + random.nextInt(30 * food.length);
+        }
+
+        Meal meal = new Meal();
+        meal.setName(name);
+        meal.setPrice(priceDimes / 10.0);
+        meal.setFood(new ArrayList<Food>(Arrays.asList(food)));
+        items.put(name, meal);
+    }
+
+    private static String formatPrice(long cents) {
+        return String.format("%d.%02d", cents / 100, cents % 100);
+    }
+
+    private static final Comparator<Item> BY_NAME = new Comparator<Item>() {
+        @Override
+        public int compare(Item i1, Item i2) {
+            return i1.getName().compareTo(i2.getName());
+        }
+    };
+}
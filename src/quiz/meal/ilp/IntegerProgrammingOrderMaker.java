@@ -0,0 +1,387 @@
+package quiz.meal.ilp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.model.Item;
+
+/**
+ * Find the cheapest order by integer linear programming, with no solver library.
+ * 
+ * Buying food f alone x(f) times and meal m y(m) times, the order must satisfy
+ * x(f) + SUM need(m, f) * y(m) = wanted(f). Taking x(f) out, the cheapest order
+ * is the one maximizing the saving SUM saving(m) * y(m) subject to
+ * SUM need(m, f) * y(m) <= wanted(f), with y integer and non-negative. Only
+ * meals formed by the wanted food and saving money are variables.
+ * 
+ * The problem is solved by branch and bound. Every node solves the linear
+ * relaxation with a dense simplex over primitive arrays; all right hand sides
+ * are non-negative, so the slack basis is feasible and no first phase is needed.
+ * A lower bound on a variable is substituted out, an upper bound is one more
+ * row. The saving is integer cents, so a node whose relaxation cannot beat the
+ * best saving found by at least one cent is cut. The relaxation rounded down
+ * gives the incumbent; as the rounding allows for floating point error it may
+ * round a count up, so meals are taken off until it fits the wanted food.
+ * 
+ * @author siuying
+ */
+public class IntegerProgrammingOrderMaker extends AbstractOrderMaker implements MenuListener {
+    private static final double EPSILON = 1e-9;
+
+    private volatile CompiledMenu menu;
+
+    public IntegerProgrammingOrderMaker(Menu menu) {
+        this(new CompiledMenu(menu));
+    }
+
+    public IntegerProgrammingOrderMaker(CompiledMenu menu) {
+        this.menu = menu;
+    }
+
+    @Override
+    public List<Item> order(Item... wantedItems) {
+        CompiledMenu menu = this.menu;
+        int[] foodCount = menu.getFoodCount(Arrays.asList(wantedItems));
+        Problem problem = new Problem(menu, foodCount);
+        int[] mealCount = problem.solve();
+
+        List<Item> mealAndFood = new ArrayList<Item>();
+        for (int j = 0; j < mealCount.length; j++) {
+            for (int c = 0; c < mealCount[j]; c++) {
+                mealAndFood.add(menu.getMeal(problem.meals[j]));
+                int[] food = menu.getMealFood(problem.meals[j]);
+                int[] need = menu.getMealFoodNeed(problem.meals[j]);
+                for (int i = 0; i < food.length; i++) {
+                    foodCount[food[i]] -= need[i];
+                }
+            }
+        }
+        for (int f = 0; f < foodCount.length; f++) {
+            for (int c = 0; c < foodCount[f]; c++) {
+                mealAndFood.add(menu.getFood(f));
+            }
+        }
+        return mealAndFood;
+    }
+
+    /**
+     * Compile the new menu. Orders already being made finish with the old one.
+     */
+    @Override
+    public void menuChanged(Menu menu) {
+        this.menu = new CompiledMenu(menu);
+    }
+
+    /**
+     * @return the compiled menu this order maker is using
+     */
+    public CompiledMenu getMenu() {
+        return menu;
+    }
+
+    /**
+     * The meal packing problem of one basket. Basket food are numbered 0..k-1,
+     * variables 0..n-1 are the meals saving money which the basket can form.
+     */
+    private static class Problem {
+        private final int[] wanted;
+        private final int[] meals;
+        private final long[] saving;
+        // need[j][i] is how many of basket food i meal j contains
+        private final int[][] need;
+        private final int[] maxCount;
+
+        public Problem(CompiledMenu menu, int[] foodCount) {
+            int[] local = new int[foodCount.length];
+            int k = 0;
+            for (int f = 0; f < foodCount.length; f++) {
+                local[f] = foodCount[f] > 0 ? k++ : -1;
+            }
+            wanted = new int[k];
+            for (int f = 0; f < foodCount.length; f++) {
+                if (local[f] >= 0) {
+                    wanted[local[f]] = foodCount[f];
+                }
+            }
+
+            List<Integer> mealList = new ArrayList<Integer>();
+            boolean[] seen = new boolean[menu.getMealSize()];
+            for (int f = 0; f < foodCount.length; f++) {
+                if (local[f] < 0) {
+                    continue;
+                }
+                for (int m : menu.getMealsWithFood(f)) {
+                    if (!seen[m]) {
+                        seen[m] = true;
+                        if (menu.getMealSaving(m) > 0 && maxCount(menu, m, foodCount) > 0) {
+                            mealList.add(m);
+                        }
+                    }
+                }
+            }
+
+            int n = mealList.size();
+            meals = new int[n];
+            saving = new long[n];
+            need = new int[n][k];
+            maxCount = new int[n];
+            for (int j = 0; j < n; j++) {
+                int m = mealList.get(j);
+                meals[j] = m;
+                saving[j] = menu.getMealSaving(m);
+                maxCount[j] = maxCount(menu, m, foodCount);
+                int[] food = menu.getMealFood(m);
+                int[] count = menu.getMealFoodNeed(m);
+                for (int i = 0; i < food.length; i++) {
+                    need[j][local[food[i]]] = count[i];
+                }
+            }
+        }
+
+        private static int maxCount(CompiledMenu menu, int m, int[] foodCount) {
+            int[] food = menu.getMealFood(m);
+            int[] count = menu.getMealFoodNeed(m);
+            int max = Integer.MAX_VALUE;
+            for (int i = 0; i < food.length; i++) {
+                max = Math.min(max, foodCount[food[i]] / count[i]);
+            }
+            return max;
+        }
+
+        /**
+         * @return how many of each meal to buy
+         */
+        public int[] solve() {
+            int n = meals.length;
+            int[] best = new int[n];
+            long bestSaving = 0;
+            if (n == 0) {
+                return best;
+            }
+
+            // depth first, nodes are {lower bounds, upper bounds}
+            Deque<int[][]> nodes = new ArrayDeque<int[][]>();
+            nodes.push(new int[][] { new int[n], maxCount.clone() });
+            while (!nodes.isEmpty()) {
+                int[][] node = nodes.pop();
+                int[] lower = node[0];
+                int[] upper = node[1];
+
+                double[] y = relax(lower, upper);
+                if (y == null) {
+                    continue;
+                }
+                double bound = 0;
+                for (int j = 0; j < n; j++) {
+                    bound += saving[j] * y[j];
+                }
+                if (Math.floor(bound + EPSILON * Math.max(1, bound)) <= bestSaving) {
+                    continue;
+                }
+
+                int[] rounded = new int[n];
+                int branch = -1;
+                double mostFractional = 0;
+                for (int j = 0; j < n; j++) {
+                    rounded[j] = (int) Math.floor(y[j] + EPSILON);
+                    double fraction = y[j] - rounded[j];
+                    double distance = Math.min(fraction, 1 - fraction);
+                    if (fraction > EPSILON && distance > mostFractional) {
+                        mostFractional = distance;
+                        branch = j;
+                    }
+                }
+                int[] fitted = fit(rounded.clone());
+                long fittedSaving = 0;
+                for (int j = 0; j < n; j++) {
+                    fittedSaving += saving[j] * fitted[j];
+                }
+                if (fittedSaving > bestSaving) {
+                    bestSaving = fittedSaving;
+                    best = fitted;
+                }
+                if (branch < 0) {
+                    continue;
+                }
+
+                // y <= floor first on the stack, so y >= ceil is searched first
+                int[] downUpper = upper.clone();
+                downUpper[branch] = rounded[branch];
+                nodes.push(new int[][] { lower, downUpper });
+                int[] upLower = lower.clone();
+                upLower[branch] = rounded[branch] + 1;
+                nodes.push(new int[][] { upLower, upper });
+            }
+            return best;
+        }
+
+        /**
+         * Take meals off the counts, the least saving first, until they use no
+         * more than the wanted food.
+         * 
+         * @return the counts given
+         */
+        private int[] fit(int[] count) {
+            int n = meals.length;
+            int k = wanted.length;
+            long[] over = new long[k];
+            for (int i = 0; i < k; i++) {
+                over[i] = -wanted[i];
+                for (int j = 0; j < n; j++) {
+                    over[i] += (long) need[j][i] * count[j];
+                }
+            }
+            for (int i = 0; i < k; i++) {
+                while (over[i] > 0) {
+                    int least = -1;
+                    for (int j = 0; j < n; j++) {
+                        if (need[j][i] > 0 && count[j] > 0 && (least < 0 || saving[j] < saving[least])) {
+                            least = j;
+                        }
+                    }
+                    count[least]--;
+                    for (int f = 0; f < k; f++) {
+                        over[f] -= need[least][f];
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Solve the linear relaxation within the bounds.
+         * 
+         * @return the meal counts, or null if no order is within the bounds
+         */
+        private double[] relax(int[] lower, int[] upper) {
+            int n = meals.length;
+            int k = wanted.length;
+
+            // y = lower + z, so SUM need * z <= wanted - SUM need * lower
+            double[] rhs = new double[k];
+            for (int i = 0; i < k; i++) {
+                long r = wanted[i];
+                for (int j = 0; j < n; j++) {
+                    r -= (long) need[j][i] * lower[j];
+                }
+                if (r < 0) {
+                    return null;
+                }
+                rhs[i] = r;
+            }
+
+            int bounded = 0;
+            for (int j = 0; j < n; j++) {
+                if (upper[j] < lower[j]) {
+                    return null;
+                }
+                if (upper[j] < maxCount[j]) {
+                    bounded++;
+                }
+            }
+
+            // rows are the basket food then the upper bounds, columns the meals
+            // then the slacks then the right hand side, the last row the objective
+            int rows = k + bounded;
+            int columns = n + rows;
+            double[][] tableau = new double[rows + 1][columns + 1];
+            int[] basis = new int[rows];
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j < n; j++) {
+                    tableau[i][j] = need[j][i];
+                }
+                tableau[i][columns] = rhs[i];
+            }
+            int row = k;
+            for (int j = 0; j < n; j++) {
+                if (upper[j] < maxCount[j]) {
+                    tableau[row][j] = 1;
+                    tableau[row][columns] = upper[j] - lower[j];
+                    row++;
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                tableau[i][n + i] = 1;
+                basis[i] = n + i;
+            }
+            for (int j = 0; j < n; j++) {
+                tableau[rows][j] = -saving[j];
+            }
+
+            simplex(tableau, basis);
+
+            double[] y = new double[n];
+            for (int j = 0; j < n; j++) {
+                y[j] = lower[j];
+            }
+            for (int i = 0; i < rows; i++) {
+                if (basis[i] < n) {
+                    y[basis[i]] += tableau[i][columns];
+                }
+            }
+            return y;
+        }
+
+        /*
+         * Maximize from a feasible basis, by Bland's rule so that degenerate
+         * pivots cannot cycle. The problem is bounded since every meal has food.
+         */
+        private static void simplex(double[][] tableau, int[] basis) {
+            int rows = basis.length;
+            int columns = tableau[0].length - 1;
+            double[] objective = tableau[rows];
+            while (true) {
+                int enter = -1;
+                for (int j = 0; j < columns; j++) {
+                    if (objective[j] < -EPSILON) {
+                        enter = j;
+                        break;
+                    }
+                }
+                if (enter < 0) {
+                    return;
+                }
+
+                int leave = -1;
+                double minRatio = 0;
+                for (int i = 0; i < rows; i++) {
+                    if (tableau[i][enter] > EPSILON) {
+                        double ratio = tableau[i][columns] / tableau[i][enter];
+                        if (leave < 0 || ratio < minRatio - EPSILON
+                                || (ratio <= minRatio + EPSILON && basis[i] < basis[leave])) {
+                            leave = i;
+                            minRatio = ratio;
+                        }
+                    }
+                }
+                pivot(tableau, leave, enter);
+                basis[leave] = enter;
+            }
+        }
+
+        private static void pivot(double[][] tableau, int row, int column) {
+            double[] pivotRow = tableau[row];
+            double p = pivotRow[column];
+            for (int j = 0; j < pivotRow.length; j++) {
+                pivotRow[j] /= p;
+            }
+            for (int i = 0; i < tableau.length; i++) {
+                double factor = tableau[i][column];
+                if (i == row || factor == 0) {
+                    continue;
+                }
+                double[] r = tableau[i];
+                for (int j = 0; j < r.length; j++) {
+                    r[j] -= factor * pivotRow[j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package quiz.meal.ilp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+
+public class IntegerProgrammingOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        return new IntegerProgrammingOrderMaker(new SimpleMenu());
+    }
+
+    @Test
+    public void testLargeGroupOrder() {
+        List<Item> wantedItems = new ArrayList<Item>();
+        List<Item> expectedItems = new ArrayList<Item>();
+        for (int i = 0; i < 40; i++) {
+            wantedItems.addAll(getSimpleMenu().getItems("雙層芝士孖堡", "中薯條", "中可樂"));
+            expectedItems.addAll(getSimpleMenu().getItems("雙層芝士孖堡套餐"));
+        }
+
+        List<Item> orderItems = getOrderMaker().order(wantedItems.toArray(new Item[0]));
+        assertEquals(getSimpleMenu().getOrderPriceCents(expectedItems), getSimpleMenu().getOrderPriceCents(orderItems));
+    }
+
+    @Test
+    public void testSameAsDynamicProgramming() {
+        MenuGenerator generator = new MenuGenerator(8);
+        generator.setSides(6);
+        Menu menu = generator.generateMenu(60);
+        OrderMaker dp = new DynamicProgrammingOrderMaker(menu);
+        OrderMaker ilp = new IntegerProgrammingOrderMaker(menu);
+
+        BasketGenerator baskets = new BasketGenerator(menu, 9);
+        for (int i = 0; i < 100; i++) {
+            Item[] wanted = i % 2 == 0 ? baskets.randomBasket(10) : baskets.adversarialBasket(14);
+            List<Item> order = ilp.order(wanted);
+            assertEquals(menu.getOrderPriceCents(dp.order(wanted)), menu.getOrderPriceCents(order));
+
+            // the order has exactly the wanted food
+            List<Item> wantedList = new ArrayList<Item>();
+            for (Item item : wanted) {
+                wantedList.add(item);
+            }
+            assertEquals(OrderHelper.getBasketKey(wantedList), OrderHelper.getBasketKey(order));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package quiz.meal.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics listener keeping lock-free totals and latency histograms, in
+ * nanoseconds, for reading from monitoring while orders are made.
+ * 
+ * @author siuying
+ */
+public class AtomicMetrics implements MetricsListener {
+    private final AtomicLong treeSearches = new AtomicLong();
+    private final AtomicLong combines = new AtomicLong();
+    private final AtomicLong pruned = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final Histogram treeSearchTime = new Histogram();
+
+    private final Histogram constraintVariables = new Histogram();
+    private final Histogram propagationTime = new Histogram();
+    private final Histogram solveTime = new Histogram();
+
+    private final Histogram greedyRounds = new Histogram();
+    private final Histogram greedyTime = new Histogram();
+
+    @Override
+    public void treeSearched(long combines, long pruned, long accepted, long nanos) {
+        treeSearches.incrementAndGet();
+        this.combines.addAndGet(combines);
+        this.pruned.addAndGet(pruned);
+        this.accepted.addAndGet(accepted);
+        treeSearchTime.record(nanos);
+    }
+
+    @Override
+    public void constraintsSolved(int variables, long propagationNanos, long solveNanos) {
+        constraintVariables.record(variables);
+        propagationTime.record(propagationNanos);
+        solveTime.record(solveNanos);
+    }
+
+    @Override
+    public void greedyOrdered(int rounds, long nanos) {
+        greedyRounds.record(rounds);
+        greedyTime.record(nanos);
+    }
+
+    public long getTreeSearches() {
+        return treeSearches.get();
+    }
+
+    public long getCombines() {
+        return combines.get();
+    }
+
+    public long getPruned() {
+        return pruned.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public Histogram getTreeSearchTime() {
+        return treeSearchTime;
+    }
+
+    public Histogram getConstraintVariables() {
+        return constraintVariables;
+    }
+
+    public Histogram getPropagationTime() {
+        return propagationTime;
+    }
+
+    public Histogram getSolveTime() {
+        return solveTime;
+    }
+
+    public Histogram getGreedyRounds() {
+        return greedyRounds;
+    }
+
+    public Histogram getGreedyTime() {
+        return greedyTime;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("tree search: orders=%d combines=%d pruned=%d accepted=%d time[%s]%n",
+                getTreeSearches(), getCombines(), getPruned(), getAccepted(), treeSearchTime));
+        s.append(String.format("constraints: variables[%s] propagation[%s] solve[%s]%n", constraintVariables,
+                propagationTime, solveTime));
+        s.append(String.format("greedy: rounds[%s] time[%s]", greedyRounds, greedyTime));
+        return s.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package quiz.meal.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.csp.CSOrderMaker;
+import quiz.meal.model.Item;
+import quiz.meal.plain.PlainOrderMaker;
+import quiz.meal.search.TreeSearchOrderMaker;
+
+public class AtomicMetricsTest {
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        for (long v = 0; v < 100; v++) {
+            histogram.record(v);
+        }
+        histogram.record(1000);
+        assertEquals(101, histogram.getCount());
+        assertEquals(4950 + 1000, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+        // 50 is in the bucket 32..63, 99 in 64..127
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(127, histogram.getPercentile(99));
+        assertEquals(1023, histogram.getPercentile(100));
+        assertEquals(0, new Histogram().getPercentile(50));
+    }
+
+    @Test
+    public void testOrderMakerMetrics() {
+        Menu menu = new SimpleMenu();
+        Item[] wanted = menu.getItems("雙層芝士孖堡", "至尊漢堡", "中薯條", "中可樂", "中薯條", "中可樂")
+                .toArray(new Item[0]);
+        AtomicMetrics metrics = new AtomicMetrics();
+
+        TreeSearchOrderMaker exhaustive = new TreeSearchOrderMaker(menu);
+        exhaustive.setMetrics(metrics);
+        exhaustive.order(wanted);
+        assertEquals(1, metrics.getTreeSearches());
+        assertEquals(0, metrics.getPruned());
+        assertTrue(metrics.getCombines() > 0);
+        assertTrue(metrics.getAccepted() > 0);
+        long exhaustiveCombines = metrics.getCombines();
+
+        TreeSearchOrderMaker parallel = new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.PARALLEL);
+        parallel.setMetrics(metrics);
+        parallel.order(wanted);
+        assertEquals(2, metrics.getTreeSearches());
+        assertTrue(metrics.getCombines() > exhaustiveCombines);
+
+        CSOrderMaker cs = new CSOrderMaker(menu, CSOrderMaker.Mode.SPARSE);
+        cs.setMetrics(metrics);
+        cs.order(wanted);
+        assertEquals(1, metrics.getSolveTime().getCount());
+        assertTrue(metrics.getConstraintVariables().getMax() > 0);
+
+        PlainOrderMaker plain = new PlainOrderMaker(menu);
+        plain.setMetrics(metrics);
+        plain.order(wanted);
+        assertEquals(1, metrics.getGreedyRounds().getCount());
+        assertEquals(2, metrics.getGreedyRounds().getMax());
+    }
+}
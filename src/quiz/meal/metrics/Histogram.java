@@ -0,0 +1,74 @@
+package quiz.meal.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, in buckets of powers of two.
+ * Bucket b counts values of b + 1 significant bits, 0 and 1 in bucket 0, so a
+ * percentile is known to within a factor of two.
+ * 
+ * @author siuying
+ */
+public class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(63);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return a value no smaller than the percentile, the largest value of its bucket
+     */
+    public long getPercentile(double percentile) {
+        long n = 0;
+        for (int b = 0; b < buckets.length(); b++) {
+            n += buckets.get(b);
+        }
+        long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for (int b = 0; b < buckets.length(); b++) {
+            seen += buckets.get(b);
+            if (seen >= rank && seen > 0) {
+                return b == 62 ? Long.MAX_VALUE : (2L << b) - 1;
+            }
+        }
+        return 0;
+    }
+
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50<=%d p99<=%d max=%d", getCount(), getMean(), getPercentile(50),
+                getPercentile(99), getMax());
+    }
+}
@@ -0,0 +1,38 @@
+package quiz.meal.metrics;
+
+/**
+ * Told what the order makers did for each order. Called once per order, from
+ * whatever thread made it, so implementations must be thread safe and cheap.
+ * 
+ * @author siuying
+ */
+public interface MetricsListener {
+
+    /**
+     * TreeSearchOrderMaker made an order.
+     * 
+     * @param combines meals tried on the remaining food
+     * @param pruned branches cut by the bound
+     * @param accepted orders kept as the best found so far
+     * @param nanos time to make the order
+     */
+    void treeSearched(long combines, long pruned, long accepted, long nanos);
+
+    /**
+     * CSOrderMaker made an order.
+     * 
+     * @param variables variables of the constraint model
+     * @param propagationNanos time to build and propagate the constraints
+     * @param solveNanos time to search the solution
+     */
+    void constraintsSolved(int variables, long propagationNanos, long solveNanos);
+
+    /**
+     * PlainOrderMaker made an order.
+     * 
+     * @param rounds greedy rounds, one for each meal taken
+     * @param nanos time to make the order
+     */
+    void greedyOrdered(int rounds, long nanos);
+
+}
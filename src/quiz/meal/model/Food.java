@@ -3,6 +3,7 @@ package quiz.meal.model;
 public class Food implements Item {
     private String name;
     private double price;
+    private long priceCents;
     
     /**
      * @return the name
@@ -29,6 +30,14 @@ public class Food implements Item {
      */
     public void setPrice(double price) {
         this.price = price;
+        this.priceCents = Math.round(price * 100);
+    }
+    /**
+     * @return the price in cents
+     */
+    @Override
+    public long getPriceCents() {
+        return priceCents;
     }
     
     public String toString() {
@@ -53,9 +62,7 @@ public class Food implements Item {
     public boolean equals(Object obj) {
         if (this == obj)
             return true;
-        if (obj == null)
-            return false;
-        if (getClass() != obj.getClass())
+        if (!(obj instanceof Food))
             return false;
         Food other = (Food) obj;
         if (name == null) {
@@ -3,4 +3,5 @@ package quiz.meal.model;
 public interface Item {
     String getName();
     double getPrice();
+    long getPriceCents();
 }
@@ -6,6 +6,7 @@ import java.util.List;
 public class Meal implements Item {
     private String name;
     private double price;
+    private long priceCents;
     private List<Food> food;
     
     /**
@@ -33,6 +34,14 @@ public class Meal implements Item {
      */
     public void setPrice(double price) {
         this.price = price;
+        this.priceCents = Math.round(price * 100);
+    }
+    /**
+     * @return the price in cents
+     */
+    @Override
+    public long getPriceCents() {
+        return priceCents;
     }
     /**
      * @return the food
@@ -69,9 +78,7 @@ public class Meal implements Item {
     public boolean equals(Object obj) {
         if (this == obj)
             return true;
-        if (obj == null)
-            return false;
-        if (getClass() != obj.getClass())
+        if (!(obj instanceof Meal))
             return false;
         Meal other = (Meal) obj;
         if (name == null) {
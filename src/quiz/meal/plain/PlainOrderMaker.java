@@ -4,10 +4,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import quiz.meal.OrderMaker;
-import quiz.meal.SimpleMenu;
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.metrics.MetricsListener;
 import quiz.meal.model.Food;
 import quiz.meal.model.Item;
 import quiz.meal.model.Meal;
@@ -15,30 +20,121 @@ import quiz.meal.model.Meal;
 /**
  * @author Jacky See
  * Making orders arranged by worthies meal
+ * 
+ * Orders of food on the menu are matched on count arrays of the compiled menu,
+ * taking and putting back meal food in place, other orders on item lists.
  */
-public class PlainOrderMaker implements OrderMaker {
+public class PlainOrderMaker extends AbstractOrderMaker implements MenuListener {
 	
-	private static SimpleMenu menu = new SimpleMenu();
-	private List<Meal> meals;
+	private volatile SortedMeals sortedMeals;
 	
-	public PlainOrderMaker() {
-		meals = getMenusSortedByMoneySaved();
+	/**
+	 * Make orders with the meals of another menu, such as a PrunedMenu
+	 * @param menu
+	 */
+	public PlainOrderMaker(Menu menu) {
+		this(new CompiledMenu(menu));
+	}
+	
+	/**
+	 * Make orders with the meals of a compiled menu, shared with other order makers
+	 * @param menu
+	 */
+	public PlainOrderMaker(CompiledMenu menu) {
+		sortedMeals = new SortedMeals(menu);
+	}
+	
+	/**
+	 * Sort the meals of the new menu. Orders already being made finish with
+	 * the old meals.
+	 */
+	@Override
+	public void menuChanged(Menu menu) {
+		sortedMeals = new SortedMeals(new CompiledMenu(menu));
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public List<Item> order(Item... wantedItems) {
+		MetricsListener metrics = getMetrics();
+		long start = metrics == null ? 0 : System.nanoTime();
+		SortedMeals sorted = sortedMeals;
+		int[] foodCount = sorted.foodCount.get();
+		for (int i = 0; i < wantedItems.length; i++) {
+			int f = wantedItems[i] instanceof Food ? sorted.menu.findFoodOrdinal((Food) wantedItems[i]) : -1;
+			if (f < 0) {
+				// not a food of the menu, put back the counted ones
+				for (int j = 0; j < i; j++) {
+					foodCount[sorted.menu.findFoodOrdinal((Food) wantedItems[j])]--;
+				}
+				return orderByList(sorted.meals, metrics, start, wantedItems);
+			}
+			foodCount[f]++;
+		}
+		
+		// counts only go down, so a meal not matching now never matches later
+		// and every meal is tried once
+		List<Item> resultItems = new ArrayList<Item>();
+		for (int m : sorted.order) {
+			while (takeMealFood(sorted.menu, m, foodCount)) {
+				resultItems.add(sorted.menu.getMeal(m));
+			}
+		}
+		
+		// the food left are the last ones of each kind wanted, as removed from a list
+		int mealCount = resultItems.size();
+		for (int i = wantedItems.length - 1; i >= 0; i--) {
+			int f = sorted.menu.findFoodOrdinal((Food) wantedItems[i]);
+			if (foodCount[f] > 0) {
+				foodCount[f]--;
+				resultItems.add(wantedItems[i]);
+			}
+		}
+		Collections.reverse(resultItems.subList(mealCount, resultItems.size()));
+		if (metrics != null) {
+			metrics.greedyOrdered(mealCount, System.nanoTime() - start);
+		}
+		return resultItems;
+	}
+	
+	/**
+	 * Take the food of a meal from the food count, if all of them are there.
+	 * @param menu compiled menu of the food and meal ordinals
+	 * @param meal meal ordinal
+	 * @param foodCount count of each food ordinal, decreased in place
+	 * @return true if the meal food are taken, false if the count is unchanged
+	 */
+	public boolean takeMealFood(CompiledMenu menu, int meal, int[] foodCount) {
+		int[] food = menu.getMealFood(meal);
+		int[] need = menu.getMealFoodNeed(meal);
+		for (int i = 0; i < food.length; i++) {
+			foodCount[food[i]] -= need[i];
+			if (foodCount[food[i]] < 0) {
+				// put back what is taken
+				for (int j = 0; j <= i; j++) {
+					foodCount[food[j]] += need[j];
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<Item> orderByList(List<Meal> meals, MetricsListener metrics, long start, Item... wantedItems) {
 		
 		List<Item> resultItems = new ArrayList<Item>();
 		List<Item> remainingFoods = (List<Item>) new ArrayList<Item>(Arrays.asList(wantedItems)).clone();
 		
-		Meal meal = getWorthiestMeal(remainingFoods);
+		Meal meal = getWorthiestMeal(remainingFoods, meals);
 		while(meal != null){
 			resultItems.add(meal);
 			subtractMealFoodFromItemList(meal, remainingFoods);
-			meal = getWorthiestMeal(remainingFoods);
+			meal = getWorthiestMeal(remainingFoods, meals);
 		}
 		
+		if (metrics != null) {
+			metrics.greedyOrdered(resultItems.size(), System.nanoTime() - start);
+		}
 		resultItems.addAll(remainingFoods);
 		return resultItems;
 	}
@@ -49,6 +145,10 @@ public class PlainOrderMaker implements OrderMaker {
 	 * @return
 	 */
 	public Meal getWorthiestMeal(List<Item> wantedItems){
+		return getWorthiestMeal(wantedItems, sortedMeals.meals);
+	}
+	
+	private Meal getWorthiestMeal(List<Item> wantedItems, List<Meal> meals){
 		for(Meal meal: meals){
 			if(matchMealItems(wantedItems, meal)){
 				return meal;
@@ -84,6 +184,22 @@ public class PlainOrderMaker implements OrderMaker {
 		return individualTotal - meal.getPrice();
 	}
 	
+	/**
+	 * Get money saved by a meal, in cents
+	 * @param meal
+	 * @return
+	 */
+	public long getMoneySavedCents(Meal meal){
+		if(meal == null) 
+			return 0;
+		
+		long individualTotal = 0;
+		for (Item food : meal.getFood()) {
+			individualTotal += food.getPriceCents();
+		}
+		return individualTotal - meal.getPriceCents();
+	}
+	
 	
 	/**
 	 * See if the items can form the input meal
@@ -108,10 +224,19 @@ public class PlainOrderMaker implements OrderMaker {
 	
 	
 	/**
-	 * Get Meals sorted by money saved
+	 * Get Meals of the menu in use sorted by money saved
 	 * @return
 	 */
 	public List<Meal> getMenusSortedByMoneySaved(){
+		return new ArrayList<Meal>(sortedMeals.meals);
+	}
+	
+	/**
+	 * Get Meals of a menu sorted by money saved
+	 * @param menu
+	 * @return
+	 */
+	public List<Meal> getMenusSortedByMoneySaved(Menu menu){
 		List<Meal> meals = new ArrayList<Meal>();
 		for(Item item : menu.getAllItems().values()){
 			if(item instanceof Meal){
@@ -121,11 +246,43 @@ public class PlainOrderMaker implements OrderMaker {
 		Collections.sort(meals, new Comparator<Meal>(){
 			@Override
 			public int compare(Meal m1, Meal m2) {
-				double result = getMoneySaved(m2) - getMoneySaved(m1);
+				long result = getMoneySavedCents(m2) - getMoneySavedCents(m1);
 				return (result > 0)? 1: (result == 0)? 0: -1;
 			}
 		});
 		return meals;
 	}
 	
+	/**
+	 * Meals sorted by money saved, both as a list and as ordinals of the
+	 * compiled menu, and a food count array for each thread
+	 */
+	private class SortedMeals {
+		private final List<Meal> meals;
+		private final CompiledMenu menu;
+		private final int[] order;
+		private final ThreadLocal<int[]> foodCount;
+		
+		private SortedMeals(CompiledMenu menu) {
+			this.meals = getMenusSortedByMoneySaved(menu.getMenu());
+			this.menu = menu;
+			
+			Map<Meal, Integer> ordinal = new HashMap<Meal, Integer>();
+			for (int m = 0; m < this.menu.getMealSize(); m++) {
+				ordinal.put(this.menu.getMeal(m), m);
+			}
+			order = new int[meals.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = ordinal.get(meals.get(i));
+			}
+			
+			final int foodSize = this.menu.getFoodSize();
+			foodCount = new ThreadLocal<int[]>() {
+				@Override
+				protected int[] initialValue() {
+					return new int[foodSize];
+				}
+			};
+		}
+	}
 }
@@ -1,16 +1,21 @@
 package quiz.meal.plain;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.CompiledMenu;
 import quiz.meal.OrderMaker;
+import quiz.meal.gen.BasketGenerator;
 import quiz.meal.model.Item;
 import quiz.meal.model.Meal;
 
@@ -25,7 +30,7 @@ public class PlainOrderMakerTest extends AbstractOrderMakerTest {
 	
 	@Before
 	public void setup(){
-		maker = new PlainOrderMaker();
+		maker = new PlainOrderMaker(getSimpleMenu());
 	}
 	
 	
@@ -47,7 +52,7 @@ public class PlainOrderMakerTest extends AbstractOrderMakerTest {
 	@Test
 	public void testWorthiestMeal() throws Exception {
 		List<Item> foodItems = getSimpleMenu().getItems("雙層芝士孖堡","中薯條","中可樂","至尊漢堡");
-		Meal worthiestMeal = new PlainOrderMaker().getWorthiestMeal(foodItems);
+		Meal worthiestMeal = new PlainOrderMaker(getSimpleMenu()).getWorthiestMeal(foodItems);
 		assertEquals(worthiestMeal.getName(),"至尊漢堡套餐");
 	}
 	
@@ -55,13 +60,52 @@ public class PlainOrderMakerTest extends AbstractOrderMakerTest {
 	public void testRemainingFood() throws Exception {
 		List<Item> foodItems = getSimpleMenu().getItems("雙層芝士孖堡","中薯條","中可樂","中可樂","至尊漢堡");
 		Meal meal = (Meal) getSimpleMenu().getItems("雙層芝士孖堡套餐").get(0);
-		new PlainOrderMaker().subtractMealFoodFromItemList(meal, foodItems);
+		new PlainOrderMaker(getSimpleMenu()).subtractMealFoodFromItemList(meal, foodItems);
 		assertEquals(2, foodItems.size());
 	}
 
+	@Test
+	public void testTakeMealFood() throws Exception {
+		CompiledMenu compiled = new CompiledMenu(getSimpleMenu());
+		int meal = compiled.getMealSize() - 1;
+		while (!compiled.getMeal(meal).getName().equals("雙層芝士孖堡套餐")) {
+			meal--;
+		}
+		
+		int[] foodCount = compiled.getFoodCount(getSimpleMenu().getItems("雙層芝士孖堡","中薯條","中可樂","中可樂"));
+		assertTrue(maker.takeMealFood(compiled, meal, foodCount));
+		assertArrayEquals(compiled.getFoodCount(getSimpleMenu().getItems("中可樂")), foodCount);
+		
+		int[] noBurger = compiled.getFoodCount(getSimpleMenu().getItems("至尊漢堡","中薯條","中可樂"));
+		int[] expected = noBurger.clone();
+		assertFalse(maker.takeMealFood(compiled, meal, noBurger));
+		assertArrayEquals(expected, noBurger);
+	}
+	
+	@Test
+	public void testSameAsListMatching() throws Exception {
+		BasketGenerator generator = new BasketGenerator(getSimpleMenu(), 5);
+		for (int i = 0; i < 100; i++) {
+			Item[] basket = generator.randomBasket(1 + i % 12);
+			
+			// the greedy rounds on item lists
+			List<Item> expected = new ArrayList<Item>();
+			List<Item> remaining = new ArrayList<Item>(Arrays.asList(basket));
+			Meal meal = maker.getWorthiestMeal(remaining);
+			while (meal != null) {
+				expected.add(meal);
+				maker.subtractMealFoodFromItemList(meal, remaining);
+				meal = maker.getWorthiestMeal(remaining);
+			}
+			expected.addAll(remaining);
+			
+			assertEquals(expected, maker.order(basket));
+		}
+	}
+
 	@Override
 	public OrderMaker getOrderMaker() {
-		return new PlainOrderMaker();
+		return new PlainOrderMaker(getSimpleMenu());
 	}
 
 }
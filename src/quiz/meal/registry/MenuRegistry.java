@@ -0,0 +1,331 @@
+package quiz.meal.registry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * The menus of many stores in one JVM, sharing whatever they have in common.
+ *
+ * Registered items are interned: a food of the same name and price, or a meal
+ * of the same name, price and food, is the same instance in every menu. Stores
+ * with the same items share one menu and one CompiledMenu, so order makers
+ * built from getCompiledMenu() share their index too. A menu is dropped once no
+ * store uses it, and an item once no menu has it. Interned items cannot be
+ * changed, their setters throw UnsupportedOperationException.
+ *
+ * @author siuying
+ */
+public class MenuRegistry {
+    private final ConcurrentMap<String, InternedFood> foods = new ConcurrentHashMap<String, InternedFood>();
+    private final ConcurrentMap<String, InternedMeal> meals = new ConcurrentHashMap<String, InternedMeal>();
+    private final ConcurrentMap<Content, Shared> menus = new ConcurrentHashMap<Content, Shared>();
+    private final ConcurrentMap<String, Shared> stores = new ConcurrentHashMap<String, Shared>();
+
+    /**
+     * Register the menu of a store, replacing its old menu if any.
+     *
+     * @return the menu of interned items the store now uses
+     */
+    public synchronized Menu register(String store, Menu menu) {
+        for (Item item : menu.getAllItems().values()) {
+            if (!(item instanceof Food) && !(item instanceof Meal)) {
+                throw new IllegalArgumentException("unknown item: " + item);
+            }
+        }
+
+        Map<String, Item> items = new HashMap<String, Item>();
+        for (Item item : menu.getAllItems().values()) {
+            Item interned = item instanceof Food ? intern((Food) item) : intern((Meal) item);
+            items.put(interned.getName(), interned);
+        }
+
+        // the same interned items make the same menu
+        Content content = new Content(items.values());
+        Shared shared = menus.get(content);
+        if (shared == null) {
+            shared = new Shared(content, new SimpleMenu(items));
+            menus.put(content, shared);
+            for (Item item : content.items) {
+                retain(item);
+            }
+        }
+        shared.stores++;
+        release(stores.put(store, shared));
+        return shared.menu;
+    }
+
+    /**
+     * @return the menu of the store, or null if the store is not registered
+     */
+    public Menu getMenu(String store) {
+        Shared shared = stores.get(store);
+        return shared == null ? null : shared.menu;
+    }
+
+    /**
+     * @return the compiled menu of the store, shared with the stores of the
+     * same items, or null if the store is not registered
+     */
+    public CompiledMenu getCompiledMenu(String store) {
+        Shared shared = stores.get(store);
+        return shared == null ? null : shared.getCompiledMenu();
+    }
+
+    /**
+     * @return whether the store was registered
+     */
+    public synchronized boolean remove(String store) {
+        Shared shared = stores.remove(store);
+        release(shared);
+        return shared != null;
+    }
+
+    /**
+     * @return names of the registered stores
+     */
+    public Set<String> getStores() {
+        return Collections.unmodifiableSet(stores.keySet());
+    }
+
+    /**
+     * @return number of distinct menus, foods and meals in use
+     */
+    public int getMenuCount() {
+        return menus.size();
+    }
+
+    public int getFoodCount() {
+        return foods.size();
+    }
+
+    public int getMealCount() {
+        return meals.size();
+    }
+
+    /**
+     * Drop the menu a store used if no other store uses it, and the items no
+     * other menu has.
+     */
+    private void release(Shared shared) {
+        if (shared != null && --shared.stores == 0) {
+            menus.remove(shared.content);
+            for (Item item : shared.content.items) {
+                release(item);
+            }
+        }
+    }
+
+    /**
+     * Count one more menu having the item, or the meal with the food.
+     */
+    private void retain(Item item) {
+        if (item instanceof InternedFood) {
+            ((InternedFood) item).menus++;
+        } else if (((InternedMeal) item).menus++ == 0) {
+            for (Food food : ((Meal) item).getFood()) {
+                retain(food);
+            }
+        }
+    }
+
+    /**
+     * Count one less menu having the item, dropping it from the registry when
+     * none has it.
+     */
+    private void release(Item item) {
+        if (item instanceof InternedFood) {
+            if (--((InternedFood) item).menus == 0) {
+                foods.remove(getKey((Food) item));
+            }
+        } else if (--((InternedMeal) item).menus == 0) {
+            meals.remove(getKey((Meal) item));
+            for (Food food : ((Meal) item).getFood()) {
+                release(food);
+            }
+        }
+    }
+
+    private Food intern(Food food) {
+        String key = getKey(food);
+        InternedFood interned = foods.get(key);
+        if (interned == null) {
+            interned = new InternedFood(food);
+            foods.put(key, interned);
+        }
+        return interned;
+    }
+
+    private Meal intern(Meal meal) {
+        List<Food> food = new ArrayList<Food>(meal.getFood().size());
+        for (Food f : meal.getFood()) {
+            food.add(intern(f));
+        }
+
+        InternedMeal copy = new InternedMeal(meal, Collections.unmodifiableList(food));
+        String key = getKey(copy);
+        InternedMeal interned = meals.get(key);
+        if (interned == null) {
+            interned = copy;
+            meals.put(key, interned);
+        }
+        return interned;
+    }
+
+    private static String getKey(Food food) {
+        return food.getName() + '\u0000' + food.getPriceCents();
+    }
+
+    private static String getKey(Meal meal) {
+        StringBuilder key = new StringBuilder(meal.getName()).append('\u0000').append(meal.getPriceCents());
+        for (Food food : meal.getFood()) {
+            key.append('\u0000').append(getKey(food));
+        }
+        return key.toString();
+    }
+
+    /**
+     * The interned items of a menu, sorted by name. Interned items are the
+     * same instance for the same name, price and food, so they are compared
+     * by identity; Item.equals() compares names only.
+     */
+    private static class Content {
+        private final Item[] items;
+        private final int hash;
+
+        private Content(Collection<Item> items) {
+            this.items = items.toArray(new Item[items.size()]);
+            Arrays.sort(this.items, new Comparator<Item>() {
+                @Override
+                public int compare(Item a, Item b) {
+                    return a.getName().compareTo(b.getName());
+                }
+            });
+            int hash = 1;
+            for (Item item : this.items) {
+                hash = 31 * hash + System.identityHashCode(item);
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Content)) {
+                return false;
+            }
+            Item[] other = ((Content) obj).items;
+            if (other.length != items.length) {
+                return false;
+            }
+            for (int i = 0; i < items.length; i++) {
+                if (items[i] != other[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A menu, the compiled menu of it, compiled when first asked for, and the
+     * number of stores using it.
+     */
+    private static class Shared {
+        private final Content content;
+        private final Menu menu;
+        private volatile CompiledMenu compiled;
+        // guarded by the registry
+        private int stores;
+
+        private Shared(Content content, Menu menu) {
+            this.content = content;
+            this.menu = menu;
+        }
+
+        private CompiledMenu getCompiledMenu() {
+            CompiledMenu compiled = this.compiled;
+            if (compiled == null) {
+                synchronized (this) {
+                    compiled = this.compiled;
+                    if (compiled == null) {
+                        compiled = new CompiledMenu(menu);
+                        this.compiled = compiled;
+                    }
+                }
+            }
+            return compiled;
+        }
+    }
+
+    /**
+     * Food which cannot be changed once interned.
+     */
+    private static class InternedFood extends Food {
+        // menus having the food or one of its meals, guarded by the registry
+        private int menus;
+
+        private InternedFood(Food food) {
+            super.setName(food.getName());
+            super.setPrice(food.getPrice());
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Sorry, interned food cannot be changed");
+        }
+
+        @Override
+        public void setPrice(double price) {
+            throw new UnsupportedOperationException("Sorry, interned food cannot be changed");
+        }
+    }
+
+    /**
+     * Meal which cannot be changed once interned.
+     */
+    private static class InternedMeal extends Meal {
+        // menus having the meal, guarded by the registry
+        private int menus;
+
+        private InternedMeal(Meal meal, List<Food> food) {
+            super.setName(meal.getName());
+            super.setPrice(meal.getPrice());
+            super.setFood(food);
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Sorry, interned meal cannot be changed");
+        }
+
+        @Override
+        public void setPrice(double price) {
+            throw new UnsupportedOperationException("Sorry, interned meal cannot be changed");
+        }
+
+        @Override
+        public void setFood(List<Food> food) {
+            throw new UnsupportedOperationException("Sorry, interned meal cannot be changed");
+        }
+    }
+}
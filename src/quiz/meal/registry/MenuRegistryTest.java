@@ -0,0 +1,151 @@
+package quiz.meal.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+public class MenuRegistryTest {
+
+    @Test
+    public void testSameItems() {
+        MenuRegistry registry = new MenuRegistry();
+        Menu central = registry.register("central", new SimpleMenu());
+        Menu mongkok = registry.register("mongkok", new SimpleMenu());
+
+        assertSame(central, mongkok);
+        assertSame(registry.getCompiledMenu("central"), registry.getCompiledMenu("mongkok"));
+        assertEquals(1, registry.getMenuCount());
+        assertEquals(13, registry.getFoodCount());
+        assertEquals(11, registry.getMealCount());
+
+        // meals hold the interned food
+        Meal meal = (Meal) central.getItems("雙層芝士孖堡套餐").get(0);
+        assertSame(central.getItems("中薯條").get(0), meal.getFood().get(1));
+
+        List<Item> order = new DynamicProgrammingOrderMaker(registry.getCompiledMenu("mongkok"))
+                .order(mongkok.getItems("雙層芝士孖堡", "中薯條", "中可樂").toArray(new Item[0]));
+        assertEquals(central.getItems("雙層芝士孖堡套餐"), order);
+    }
+
+    @Test
+    public void testOtherPrice() {
+        MenuRegistry registry = new MenuRegistry();
+        Menu central = registry.register("central", new SimpleMenu());
+
+        // the airport sells one meal dearer
+        Map<String, Item> items = new HashMap<String, Item>(new SimpleMenu().getAllItems());
+        Meal bigMac = (Meal) items.get("巨無霸套餐");
+        Meal dearer = new Meal();
+        dearer.setName(bigMac.getName());
+        dearer.setPrice(bigMac.getPrice() + 2);
+        dearer.setFood(bigMac.getFood());
+        items.put(dearer.getName(), dearer);
+        Menu airport = registry.register("airport", new SimpleMenu(items));
+
+        assertNotSame(central, airport);
+        assertNotSame(registry.getCompiledMenu("central"), registry.getCompiledMenu("airport"));
+        assertEquals(2, registry.getMenuCount());
+        assertEquals(13, registry.getFoodCount());
+        assertEquals(12, registry.getMealCount());
+        assertSame(central.getItems("巨無霸").get(0), airport.getItems("巨無霸").get(0));
+        assertSame(central.getItems("魚柳飽套餐").get(0), airport.getItems("魚柳飽套餐").get(0));
+        assertNotSame(central.getItems("巨無霸套餐").get(0), airport.getItems("巨無霸套餐").get(0));
+    }
+
+    @Test
+    public void testManyStores() {
+        MenuRegistry registry = new MenuRegistry();
+        for (int i = 0; i < 100; i++) {
+            registry.register("store-" + i, new MenuGenerator(i % 4).generateMenu(30));
+        }
+        assertEquals(100, registry.getStores().size());
+        assertEquals(4, registry.getMenuCount());
+        assertSame(registry.getMenu("store-1"), registry.getMenu("store-5"));
+        assertSame(registry.getCompiledMenu("store-2"), registry.getCompiledMenu("store-98"));
+
+        assertTrue(registry.remove("store-1"));
+        assertFalse(registry.remove("store-1"));
+        assertNull(registry.getMenu("store-1"));
+        assertNull(registry.getCompiledMenu("store-1"));
+        assertEquals(4, registry.getMenuCount());
+
+        // the menu goes with the last store using it, removed or registered again
+        for (int i = 5; i < 100; i += 4) {
+            if (i < 50) {
+                assertTrue(registry.remove("store-" + i));
+            } else {
+                registry.register("store-" + i, new MenuGenerator(0).generateMenu(30));
+            }
+        }
+        assertEquals(3, registry.getMenuCount());
+        assertSame(registry.getMenu("store-0"), registry.getMenu("store-97"));
+    }
+
+    @Test
+    public void testRemovedItemsDropped() {
+        MenuRegistry registry = new MenuRegistry();
+        registry.register("central", new SimpleMenu());
+        registry.register("airport", new MenuGenerator(1).generateMenu(30));
+        int foods = registry.getFoodCount();
+        int meals = registry.getMealCount();
+        assertTrue(foods > 13);
+        assertTrue(meals > 11);
+
+        // a price revision replaces the old items
+        registry.register("airport", new MenuGenerator(2).generateMenu(30));
+        assertEquals(2, registry.getMenuCount());
+
+        assertTrue(registry.remove("airport"));
+        assertEquals(1, registry.getMenuCount());
+        assertEquals(13, registry.getFoodCount());
+        assertEquals(11, registry.getMealCount());
+
+        assertTrue(registry.remove("central"));
+        assertEquals(0, registry.getMenuCount());
+        assertEquals(0, registry.getFoodCount());
+        assertEquals(0, registry.getMealCount());
+    }
+
+    @Test
+    public void testInternedItemsCannotChange() {
+        MenuRegistry registry = new MenuRegistry();
+        Menu menu = registry.register("central", new SimpleMenu());
+        Food fries = (Food) menu.getItems("中薯條").get(0);
+        Meal meal = (Meal) menu.getItems("雙層芝士孖堡套餐").get(0);
+        try {
+            fries.setPrice(0);
+            fail("interned food must not change");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            meal.setFood(new ArrayList<Food>());
+            fail("interned meal must not change");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // still equal to the items they were interned from
+        assertEquals(new SimpleMenu().getItems("中薯條").get(0), fries);
+        assertEquals(fries, new SimpleMenu().getItems("中薯條").get(0));
+    }
+}
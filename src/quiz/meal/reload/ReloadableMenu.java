@@ -0,0 +1,206 @@
+package quiz.meal.reload;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.SimpleMenu;
+import quiz.meal.binary.BinaryMenuWriter;
+import quiz.meal.binary.MappedMenu;
+import quiz.meal.model.Item;
+
+/**
+ * Menu loaded from a YAML or binary menu file, which is loaded again when the
+ * file changes, so prices can change without restarting.
+ * 
+ * Every load makes a new immutable menu, which is published by swapping an
+ * atomic reference. Readers never block and never see a half loaded menu, but
+ * two calls may see different menus; use getSnapshot() to work on one menu.
+ * Listeners are told of every new menu, in the order they were added, after it
+ * is published; a listener failing is logged and does not stop the others.
+ * A file that fails to load is logged and the old menu is kept.
+ * Replace the file by renaming a complete one over it, or a half written file
+ * may be loaded.
+ * 
+ * @author siuying
+ */
+public class ReloadableMenu implements Menu {
+    private Logger log = Logger.getLogger(ReloadableMenu.class.getName());
+
+    private final File source;
+    private final AtomicReference<Menu> snapshot = new AtomicReference<Menu>();
+    private final List<MenuListener> listeners = new CopyOnWriteArrayList<MenuListener>();
+    private long lastModified;
+    private long lastLength;
+    private ScheduledExecutorService watcher;
+
+    /**
+     * @param source YAML menu in the format of food.yml, or a binary menu of BinaryMenuWriter
+     */
+    public ReloadableMenu(File source) throws IOException {
+        this.source = source;
+        reload();
+    }
+
+    /**
+     * Load the source file again, publish it and notify the listeners.
+     * 
+     * @throws IOException if the file cannot be loaded, the old menu is kept
+     */
+    public synchronized void reload() throws IOException {
+        long modified = source.lastModified();
+        long length = source.length();
+
+        Menu menu;
+        try {
+            menu = load(source);
+        } catch (RuntimeException e) {
+            throw new IOException("cannot load menu " + source + ": " + e.getMessage(), e);
+        }
+
+        lastModified = modified;
+        lastLength = length;
+        snapshot.set(menu);
+        for (MenuListener listener : listeners) {
+            try {
+                listener.menuChanged(menu);
+            } catch (RuntimeException e) {
+                log.error("menu listener " + listener + " failed on the new menu", e);
+            }
+        }
+    }
+
+    /**
+     * Reload the source file if it has changed since it was last loaded.
+     * 
+     * @return true if a new menu is published
+     */
+    public synchronized boolean reloadIfChanged() throws IOException {
+        if (source.lastModified() == lastModified && source.length() == lastLength) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    /**
+     * Check the source file for change periodically, in a daemon thread.
+     */
+    public synchronized void startWatching(long period, TimeUnit unit) {
+        if (watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "menu-watcher " + source.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        watcher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (reloadIfChanged()) {
+                        log.info("menu reloaded from " + source);
+                    }
+                } catch (IOException e) {
+                    log.error("menu not reloaded, keeping the old one", e);
+                } catch (RuntimeException e) {
+                    // an exception escaping would cancel the watch for good
+                    log.error("menu watch failed, trying again next period", e);
+                }
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    public void addMenuListener(MenuListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeMenuListener(MenuListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the current menu, which never changes
+     */
+    public Menu getSnapshot() {
+        return snapshot.get();
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getAllItems()
+     */
+    public Map<String, Item> getAllItems() {
+        return snapshot.get().getAllItems();
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getItems(java.lang.String)
+     */
+    public List<Item> getItems(String... names) {
+        return snapshot.get().getItems(names);
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getOrderPrice(java.util.List)
+     */
+    public double getOrderPrice(List<Item> items) {
+        return snapshot.get().getOrderPrice(items);
+    }
+
+    /* (non-Javadoc)
+     * @see quiz.meal.Menu#getOrderPriceCents(java.util.List)
+     */
+    public long getOrderPriceCents(List<Item> items) {
+        return snapshot.get().getOrderPriceCents(items);
+    }
+
+    private static Menu load(File file) throws IOException {
+        if (isBinary(file)) {
+            return new MappedMenu(file);
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            return new SimpleMenu(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static boolean isBinary(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return file.length() >= 4 && in.readInt() == BinaryMenuWriter.MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package quiz.meal.reload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.binary.BinaryMenuWriter;
+import quiz.meal.cache.CachingOrderMaker;
+import quiz.meal.csp.CSOrderMaker;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+import quiz.meal.plain.PlainOrderMaker;
+import quiz.meal.search.TreeSearchOrderMaker;
+
+public class ReloadableMenuTest {
+    private static final String[] BASKET = { "巨無霸", "中薯條", "中可樂" };
+
+    private Map<String, Item> foodYml;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        foodYml = new SimpleMenu().getAllItems();
+        file = File.createTempFile("menu", ".yml");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testOrderMakersFollowReload() throws Exception {
+        writeYaml(reprice(0, false));
+        ReloadableMenu menu = new ReloadableMenu(file);
+
+        DynamicProgrammingOrderMaker dp = new DynamicProgrammingOrderMaker(menu);
+        TreeSearchOrderMaker tree = new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.BOUNDED);
+        PlainOrderMaker plain = new PlainOrderMaker(menu);
+        CachingOrderMaker cache = new CachingOrderMaker(dp, menu, 10);
+        CSOrderMaker cs = new CSOrderMaker(menu, CSOrderMaker.Mode.PER_CALL);
+        CSOrderMaker sparse = new CSOrderMaker(menu, CSOrderMaker.Mode.SPARSE);
+        menu.addMenuListener(dp);
+        menu.addMenuListener(tree);
+        menu.addMenuListener(plain);
+        menu.addMenuListener(cache);
+        menu.addMenuListener(cs);
+        menu.addMenuListener(sparse);
+
+        OrderMaker[] makers = { dp, tree, plain, cache, cs, sparse };
+        for (OrderMaker maker : makers) {
+            assertTrue(hasMeal(maker.order(menu.getItems(BASKET).toArray(new Item[0]))));
+        }
+
+        // no meal saves anything any more, the greedy plain order maker still
+        // takes one but with its new price
+        writeYaml(reprice(0, true));
+        menu.reload();
+        for (OrderMaker maker : makers) {
+            List<Item> order = maker.order(menu.getItems(BASKET).toArray(new Item[0]));
+            for (Item item : order) {
+                assertSame(menu.getAllItems().get(item.getName()), item);
+            }
+            if (maker != plain) {
+                assertFalse(maker.getClass().getName(), hasMeal(order));
+            }
+        }
+    }
+
+    @Test
+    public void testBinarySource() throws Exception {
+        writeBinary(reprice(0, false));
+        ReloadableMenu menu = new ReloadableMenu(file);
+        assertEquals(foodYml.keySet(), menu.getAllItems().keySet());
+
+        writeBinary(reprice(7, false));
+        menu.reload();
+        for (Item item : foodYml.values()) {
+            assertEquals(item.getPriceCents() + 7, menu.getAllItems().get(item.getName()).getPriceCents());
+        }
+    }
+
+    @Test
+    public void testBrokenSourceKeepsMenu() throws Exception {
+        writeYaml(reprice(0, false));
+        ReloadableMenu menu = new ReloadableMenu(file);
+        Menu snapshot = menu.getSnapshot();
+
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write("--- not a menu\n");
+        out.close();
+        try {
+            menu.reload();
+            fail("a broken menu must not load");
+        } catch (IOException e) {
+            // expected
+        }
+        assertSame(snapshot, menu.getSnapshot());
+    }
+
+    @Test
+    public void testWatching() throws Exception {
+        writeYaml(reprice(0, false));
+        ReloadableMenu menu = new ReloadableMenu(file);
+        final CountDownLatch changed = new CountDownLatch(1);
+        menu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuChanged(Menu menu) {
+                changed.countDown();
+            }
+        });
+        assertFalse(menu.reloadIfChanged());
+
+        menu.startWatching(10, TimeUnit.MILLISECONDS);
+        try {
+            writeYaml(reprice(1, false));
+            file.setLastModified(file.lastModified() + 2000);
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+            assertEquals(foodYml.get("巨無霸").getPriceCents() + 1, menu.getAllItems().get("巨無霸").getPriceCents());
+        } finally {
+            menu.stopWatching();
+        }
+    }
+
+    @Test
+    public void testFailingListener() throws Exception {
+        writeYaml(reprice(0, false));
+        ReloadableMenu menu = new ReloadableMenu(file);
+        final CountDownLatch changed = new CountDownLatch(2);
+        menu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuChanged(Menu menu) {
+                throw new IllegalStateException("broken listener");
+            }
+        });
+        menu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuChanged(Menu menu) {
+                changed.countDown();
+            }
+        });
+
+        // the watch goes on after the broken listener, and the listener after it is told
+        menu.startWatching(10, TimeUnit.MILLISECONDS);
+        try {
+            for (int v = 1; v <= 2; v++) {
+                writeYaml(reprice(v, false));
+                file.setLastModified(file.lastModified() + 2000 * v);
+                assertTrue(awaitPrice(menu, foodYml.get("巨無霸").getPriceCents() + v));
+            }
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+        } finally {
+            menu.stopWatching();
+        }
+    }
+
+    @Test
+    public void testReadersSeeWholeMenus() throws Exception {
+        writeBinary(reprice(0, false));
+        final ReloadableMenu menu = new ReloadableMenu(file);
+        final AtomicReference<String> error = new AtomicReference<String>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (done.getCount() > 0 && error.get() == null) {
+                        // every item of one menu has the same price increase
+                        Map<String, Item> items = menu.getAllItems();
+                        long increase = -1;
+                        for (Item item : foodYml.values()) {
+                            long d = items.get(item.getName()).getPriceCents() - item.getPriceCents();
+                            if (increase >= 0 && d != increase) {
+                                error.set("half updated menu: " + item.getName());
+                            }
+                            increase = d;
+                        }
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        for (int v = 1; v <= 30; v++) {
+            writeBinary(reprice(v, false));
+            menu.reload();
+        }
+        done.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (error.get() != null) {
+            fail(error.get());
+        }
+    }
+
+    /*
+     * Copy of food.yml with every price increased, or meals costing more than their food.
+     */
+    private Map<String, Item> reprice(long increase, boolean noSaving) {
+        Map<String, Item> items = new HashMap<String, Item>();
+        for (Item item : foodYml.values()) {
+            if (item instanceof Food) {
+                Food food = new Food();
+                food.setName(item.getName());
+                food.setPrice((item.getPriceCents() + increase) / 100.0);
+                items.put(food.getName(), food);
+            }
+        }
+        for (Item item : foodYml.values()) {
+            if (item instanceof Meal) {
+                Meal meal = new Meal();
+                meal.setName(item.getName());
+                List<Food> food = new ArrayList<Food>();
+                long foodPrice = 0;
+                for (Food f : ((Meal) item).getFood()) {
+                    food.add((Food) items.get(f.getName()));
+                    foodPrice += items.get(f.getName()).getPriceCents();
+                }
+                meal.setFood(food);
+                meal.setPrice((noSaving ? foodPrice + 10 : item.getPriceCents() + increase) / 100.0);
+                items.put(meal.getName(), meal);
+            }
+        }
+        return items;
+    }
+
+    private void writeYaml(Map<String, Item> items) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer out = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+        try {
+            MenuGenerator.writeYaml(items, out);
+        } finally {
+            out.close();
+        }
+        assertTrue(tmp.renameTo(file));
+    }
+
+    private void writeBinary(Map<String, Item> items) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        BinaryMenuWriter.write(new SimpleMenu(items), tmp);
+        assertTrue(tmp.renameTo(file));
+    }
+
+    private static boolean awaitPrice(Menu menu, long cents) throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            if (menu.getAllItems().get("巨無霸").getPriceCents() == cents) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static boolean hasMeal(List<Item> order) {
+        for (Item item : order) {
+            if (item instanceof Meal) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
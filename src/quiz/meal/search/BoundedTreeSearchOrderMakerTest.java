@@ -0,0 +1,30 @@
+package quiz.meal.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.model.Item;
+import quiz.meal.search.TreeSearchOrderMaker.Mode;
+
+public class BoundedTreeSearchOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        return new TreeSearchOrderMaker(new SimpleMenu(), Mode.BOUNDED);
+    }
+
+    @Test
+    public void testSameAsExhaustiveSearch() {
+        List<Item> wantedItems = getSimpleMenu().getItems("雙層芝士孖堡", "至尊漢堡", "脆香雞翼 (4件)", "麥樂雞 (6件)", "魚柳飽",
+                "中薯條", "中薯條", "中薯條", "中薯條", "中可樂", "中可樂", "中可樂", "中可樂");
+        Item[] wanted = wantedItems.toArray(new Item[0]);
+
+        List<Item> expectedItems = new TreeSearchOrderMaker(getSimpleMenu()).order(wanted);
+        List<Item> orderItems = getOrderMaker().order(wanted);
+        assertEquals(getSimpleMenu().getOrderPriceCents(expectedItems), getSimpleMenu().getOrderPriceCents(orderItems));
+    }
+}
@@ -0,0 +1,150 @@
+package quiz.meal.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import quiz.meal.CompiledMenu;
+
+/**
+ * The meals of a menu grouped by template, for the SYMMETRIC search.
+ *
+ * The main of a meal is a food it holds once and no other meal holds, and the
+ * template of the meal is the rest of its food. Meals of one template differ
+ * only in their main, so the template food shared among them matters only by
+ * count: k templates go to the k best saving meals whose main is wanted. A meal
+ * without a main is a class of its own. Meals saving no money are left out.
+ *
+ * @author siuying
+ */
+class MealTemplates {
+    final CompiledMenu menu;
+
+    // template food ordinals of each class, and how many of each
+    final int[][] food;
+    final int[][] need;
+    // meals of each class by saving, most first, with their main or -1 if none
+    final int[][] members;
+    final int[][] main;
+    final long[][] saving;
+    // bestSavingRatio[c] is the most a food can save in classes c..
+    final double[] bestSavingRatio;
+
+    MealTemplates(CompiledMenu menu) {
+        this.menu = menu;
+
+        Map<String, List<Integer>> classes = new LinkedHashMap<String, List<Integer>>();
+        for (int m = 0; m < menu.getMealSize(); m++) {
+            if (menu.getMealSaving(m) <= 0) {
+                continue;
+            }
+            int f = findMain(m);
+            String key = f < 0 ? "meal " + m : Arrays.toString(template(m, f)[0]) + Arrays.toString(template(m, f)[1]);
+            List<Integer> meals = classes.get(key);
+            if (meals == null) {
+                meals = new ArrayList<Integer>();
+                classes.put(key, meals);
+            }
+            meals.add(m);
+        }
+
+        List<List<Integer>> sorted = new ArrayList<List<Integer>>(classes.values());
+        for (List<Integer> meals : sorted) {
+            Collections.sort(meals, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer m1, Integer m2) {
+                    return Long.compare(getSaving(m2), getSaving(m1));
+                }
+            });
+        }
+        // try the classes saving most per food first, so that a good bound is found early
+        Collections.sort(sorted, new Comparator<List<Integer>>() {
+            @Override
+            public int compare(List<Integer> c1, List<Integer> c2) {
+                return Double.compare(getSavingRatio(c2), getSavingRatio(c1));
+            }
+        });
+
+        int size = sorted.size();
+        food = new int[size][];
+        need = new int[size][];
+        members = new int[size][];
+        main = new int[size][];
+        saving = new long[size][];
+        bestSavingRatio = new double[size + 1];
+        for (int c = 0; c < size; c++) {
+            List<Integer> meals = sorted.get(c);
+            members[c] = new int[meals.size()];
+            main[c] = new int[meals.size()];
+            saving[c] = new long[meals.size()];
+            for (int i = 0; i < members[c].length; i++) {
+                members[c][i] = meals.get(i);
+                main[c][i] = findMain(meals.get(i));
+                saving[c][i] = getSaving(meals.get(i));
+            }
+            int[][] template = template(members[c][0], main[c][0]);
+            food[c] = template[0];
+            need[c] = template[1];
+        }
+        for (int c = size - 1; c >= 0; c--) {
+            bestSavingRatio[c] = Math.max(bestSavingRatio[c + 1], getSavingRatio(sorted.get(c)));
+        }
+    }
+
+    int size() {
+        return members.length;
+    }
+
+    /*
+     * The first food held once by the meal and by no other meal, or -1
+     */
+    private int findMain(int meal) {
+        int[] food = menu.getMealFood(meal);
+        int[] need = menu.getMealFoodNeed(meal);
+        for (int i = 0; i < food.length; i++) {
+            if (need[i] == 1 && menu.getMealsWithFood(food[i]).length == 1) {
+                return food[i];
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Food and need of the meal without its main
+     */
+    private int[][] template(int meal, int main) {
+        int[] food = menu.getMealFood(meal);
+        int[] need = menu.getMealFoodNeed(meal);
+        int size = main < 0 ? food.length : food.length - 1;
+        int[][] template = new int[2][size];
+        int j = 0;
+        for (int i = 0; i < food.length; i++) {
+            if (food[i] != main) {
+                template[0][j] = food[i];
+                template[1][j] = need[i];
+                j++;
+            }
+        }
+        return template;
+    }
+
+    private long getSaving(int meal) {
+        return menu.getMealSaving(meal);
+    }
+
+    private double getSavingRatio(List<Integer> meals) {
+        double best = 0;
+        for (int m : meals) {
+            int foods = 0;
+            for (int n : menu.getMealFoodNeed(m)) {
+                foods += n;
+            }
+            best = Math.max(best, (double) getSaving(m) / foods);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,36 @@
+package quiz.meal.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.Menu;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.model.Item;
+import quiz.meal.search.TreeSearchOrderMaker.Mode;
+
+public class ParallelTreeSearchOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        return new TreeSearchOrderMaker(new SimpleMenu(), Mode.PARALLEL);
+    }
+
+    @Test
+    public void testSameAsSequentialSearch() {
+        Menu menu = getSimpleMenu();
+        TreeSearchOrderMaker sequential = new TreeSearchOrderMaker(menu, Mode.BOUNDED);
+        TreeSearchOrderMaker parallel = new TreeSearchOrderMaker(menu, Mode.PARALLEL);
+        parallel.setPool(new ForkJoinPool(4));
+
+        BasketGenerator generator = new BasketGenerator(menu, 11);
+        for (int i = 0; i < 30; i++) {
+            Item[] wanted = i % 2 == 0 ? generator.randomBasket(12) : generator.adversarialBasket(14);
+            assertEquals(menu.getOrderPriceCents(sequential.order(wanted)),
+                    menu.getOrderPriceCents(parallel.order(wanted)));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package quiz.meal.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.metrics.AtomicMetrics;
+import quiz.meal.model.Item;
+import quiz.meal.search.TreeSearchOrderMaker.Mode;
+
+public class SymmetricTreeSearchOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        return new TreeSearchOrderMaker(new SimpleMenu(), Mode.SYMMETRIC);
+    }
+
+    @Test
+    public void testFewerCombines() {
+        Menu menu = getSimpleMenu();
+        List<Item> wantedItems = new ArrayList<Item>();
+        for (int i = 0; i < 2; i++) {
+            wantedItems.addAll(menu.getItems("雙層芝士孖堡", "至尊漢堡", "麥樂雞 (9件)", "脆辣雞腿飽", "板燒雞腿飽", "魚柳飽",
+                    "巨無霸", "豬柳蛋漢堡", "麥樂雞 (6件)", "脆香雞翼 (4件)"));
+        }
+        for (int i = 0; i < 12; i++) {
+            wantedItems.addAll(menu.getItems("中薯條", "中可樂"));
+        }
+        Item[] wanted = wantedItems.toArray(new Item[0]);
+
+        AtomicMetrics bounded = new AtomicMetrics();
+        TreeSearchOrderMaker boundedMaker = new TreeSearchOrderMaker(menu, Mode.BOUNDED);
+        boundedMaker.setMetrics(bounded);
+        AtomicMetrics symmetric = new AtomicMetrics();
+        TreeSearchOrderMaker symmetricMaker = new TreeSearchOrderMaker(menu, Mode.SYMMETRIC);
+        symmetricMaker.setMetrics(symmetric);
+
+        List<Item> expected = boundedMaker.order(wanted);
+        List<Item> order = symmetricMaker.order(wanted);
+        assertEquals(menu.getOrderPriceCents(expected), menu.getOrderPriceCents(order));
+        assertEquals(OrderHelper.getBasketKey(wantedItems), OrderHelper.getBasketKey(order));
+        assertTrue(symmetric.getCombines() * 10 < bounded.getCombines());
+    }
+
+    @Test
+    public void testSameAsDynamicProgramming() {
+        MenuGenerator menuGenerator = new MenuGenerator(6);
+        menuGenerator.setSides(4);
+        Menu menu = menuGenerator.generateMenu(25);
+        OrderMaker dp = new DynamicProgrammingOrderMaker(menu);
+        OrderMaker symmetric = new TreeSearchOrderMaker(menu, Mode.SYMMETRIC);
+
+        BasketGenerator generator = new BasketGenerator(menu, 13);
+        for (int i = 0; i < 60; i++) {
+            Item[] wanted = i % 2 == 0 ? generator.randomBasket(14) : generator.adversarialBasket(16);
+            List<Item> order = symmetric.order(wanted);
+            assertEquals(menu.getOrderPriceCents(dp.order(wanted)), menu.getOrderPriceCents(order));
+            assertEquals(OrderHelper.getBasketKey(Arrays.asList(wanted)), OrderHelper.getBasketKey(order));
+        }
+    }
+}
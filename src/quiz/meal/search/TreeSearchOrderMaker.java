@@ -1,13 +1,20 @@
 package quiz.meal.search;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.CompiledMenu;
 import quiz.meal.Menu;
-import quiz.meal.OrderMaker;
+import quiz.meal.MenuListener;
+import quiz.meal.metrics.MetricsListener;
 import quiz.meal.model.Food;
 import quiz.meal.model.Item;
 import quiz.meal.model.Meal;
@@ -15,103 +22,547 @@ import quiz.meal.model.Meal;
 /**
  * Create a search based order maker.
  * 
+ * A sequential search stops when the calling thread is interrupted, and returns
+ * the best order found so far with the interrupt status still set.
+ * 
  * @author Jesse Mok (Hin Ba)
  * @see http://mysinablog.com/index.php?op=ViewArticle&articleId=1688386
  *
  */
 
-public class TreeSearchOrderMaker implements OrderMaker {
-	private Menu menu;
-	private Meal[] meals;
-	private double maxMoneySaved;
-	private Stack<Meal> tracker = new Stack<Meal>();
-	private ArrayList<Meal> mealToBuy = new ArrayList<Meal>();
-	private ArrayList<Food> foodToBuy = new ArrayList<Food>();
+public class TreeSearchOrderMaker extends AbstractOrderMaker implements MenuListener {
+	/**
+	 * How the meal combinations are searched.
+	 */
+	public enum Mode {
+		/** Enumerate every meal combination */
+		EXHAUSTIVE,
+		/** Cut a branch once its best reachable saving cannot beat the best order found */
+		BOUNDED,
+		/** Search as BOUNDED, with the top levels of the tree split into fork-join tasks sharing the best saving */
+		PARALLEL,
+		/** Search as BOUNDED, choosing how many of each meal template to form rather than which meals */
+		SYMMETRIC
+	}
+
+	// levels of the search tree split into tasks in PARALLEL mode
+	private static final int PARALLEL_DEPTH = 2;
+	// the interrupt status is checked once every this many + 1 nodes
+	private static final int INTERRUPT_CHECK_MASK = 1023;
+
+	private final Mode mode;
+	private volatile Index index;
 	
     public TreeSearchOrderMaker(Menu menu) {
-        this.menu = menu;
-
-        // Move all meal to an array for easy access later
-        // Primitive array Meal[] is used for speed.
-        ArrayList<Meal> mealList = new ArrayList<Meal>();
-        Map<String, Item> map = menu.getAllItems();
-        Set<String> names = map.keySet();
-        for (String name : names) {
-        	Item item = map.get(name);
-        	if (item instanceof Meal) {
-        		mealList.add((Meal)item);
-        	}
-        }
-        meals = mealList.toArray(new Meal[mealList.size()]);
+        this(menu, Mode.EXHAUSTIVE);
+    }
+
+    public TreeSearchOrderMaker(Menu menu, Mode mode) {
+        this.mode = mode;
+        this.index = new Index(menu, null);
+    }
+
+    /**
+     * @param menu compiled menu shared with other order makers
+     */
+    public TreeSearchOrderMaker(CompiledMenu menu, Mode mode) {
+        this.mode = mode;
+        this.index = new Index(menu.getMenu(), menu);
+    }
+
+    /**
+     * Rebuild the meal index from the new menu. Searches already running finish
+     * with the old one.
+     */
+    @Override
+    public void menuChanged(Menu menu) {
+    	index = new Index(menu, null);
+    }
+
+    /**
+     * @return the search mode of this order maker
+     */
+    public Mode getMode() {
+    	return mode;
     }
 
     @Override
 	public List<Item> order(Item... wantedItems) {
-    	maxMoneySaved = 0;
-    	foodToBuy.clear();
-    	mealToBuy.clear();
-    	double moneySaved = 0d;
+    	MetricsListener metrics = getMetrics();
+    	long start = metrics == null ? 0 : System.nanoTime();
+    	List<Food> wantedFood = new ArrayList<Food>();
     	for (Item item : wantedItems) {
-    		foodToBuy.add((Food)item);
+    		wantedFood.add((Food)item);
+    	}
+
+    	if (mode == Mode.SYMMETRIC) {
+    		SymmetricSearch search = new SymmetricSearch(index.templates, wantedFood);
+    		search.search(0, 0);
+    		if (metrics != null) {
+    			metrics.treeSearched(search.combines, search.pruned, search.accepted, System.nanoTime() - start);
+    		}
+    		return search.getOrder(wantedFood);
+    	}
+
+    	Search search;
+    	if (mode == Mode.PARALLEL) {
+    		search = getPool().invoke(new SearchTask(index, new AtomicLong(), new ArrayList<Meal>(), 0, wantedFood, 0, 0));
+    		if (search.maxMoneySaved == 0) {
+    			search.foodToBuy = new ArrayList<Food>(wantedFood);
+    		}
+    	} else {
+    		search = new Search(index, null);
+    		search.foodToBuy.addAll(wantedFood);
+    		search.tryAllMeal(0, wantedFood, 0); //Base Case
     	}
-    	List<Food> foodRemain = new ArrayList<Food>(foodToBuy);
-		tryAllMeal(0, foodRemain, moneySaved); //Base Case
 		
 		List<Item> mealAndFood = new ArrayList<Item>();
-		mealAndFood.addAll(mealToBuy);
-		mealAndFood.addAll(foodToBuy);
+		mealAndFood.addAll(search.mealToBuy);
+		mealAndFood.addAll(search.foodToBuy);
 		
+		if (metrics != null) {
+			metrics.treeSearched(search.combines, search.pruned, search.accepted, System.nanoTime() - start);
+		}
 		return (List<Item>)mealAndFood;
 	}
+
+    /**
+     * State of a single order() call, so that concurrent calls do not share any
+     * search state and one order maker can serve many threads.
+     */
+    private class Search {
+    	private final Meal[] meals;
+    	private final long[] mealSaving;
+    	private final double[] bestSavingRatio;
+
+    	// best saving of all the tasks of a PARALLEL search, or null
+    	private final AtomicLong sharedMaxMoneySaved;
+
+    	private long maxMoneySaved;
+    	private int nodes;
+    	// counted for the metrics listener
+    	private long combines;
+    	private long pruned;
+    	private long accepted;
+    	private boolean interrupted;
+    	private Stack<Meal> tracker = new Stack<Meal>();
+    	private ArrayList<Meal> mealToBuy = new ArrayList<Meal>();
+    	private ArrayList<Food> foodToBuy = new ArrayList<Food>();
+
+    	private Search(Index index, AtomicLong sharedMaxMoneySaved) {
+    		meals = index.meals;
+    		mealSaving = index.mealSaving;
+    		bestSavingRatio = index.bestSavingRatio;
+    		this.sharedMaxMoneySaved = sharedMaxMoneySaved;
+    	}
+
+        /*
+         *   Try to combine 1 meal by the remain food
+         */
+        private boolean tryAllMeal(int mealIndex, List<Food> foodRemain, long moneySaved) {
+        	// The caller gave up waiting, unwind keeping the best order found
+        	if (interrupted || ((++nodes & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted())) {
+        		interrupted = true;
+        		return false;
+        	}
+
+        	// No meal from here can save more than the best order found, stop searching
+        	if (cannotSaveMore(mealIndex, foodRemain, moneySaved)) {
+        		return false;
+        	}
+
+        	boolean makeNewCombo = false;
+        	// Controlling nCr times but not nPr times.
+        	// (i.e. i = mealIndex but not i = 0)
+			for (int i = mealIndex; i < meals.length && !interrupted; i++) {
+				makeNewCombo |= tryCombine(i, foodRemain, moneySaved);
+			}
+			return makeNewCombo;
+        }
     
-    /*
-     *   Try to combine 1 meal by the remain food
+        /*
+         *   Find a meal from the remain food.
+         *   If found
+         *     try to combine more by tryAllMeal().
+         *     If can't combine more
+         *     	 this is one possible case
+         *   
+         */
+        private boolean tryCombine(int mealIndex, List<Food> foodRemain, long moneySaved) {
+        	List<Food> newFoodRemain = combine(mealIndex, foodRemain);
+
+        	if (newFoodRemain != null) {
+        		moneySaved = moneySaved + mealSaving[mealIndex];
+        		tracker.push(meals[mealIndex]); // Tracing meal history
+			
+        		if (!tryAllMeal(mealIndex, newFoodRemain, moneySaved)) { // Termination Condition
+        			record(moneySaved, newFoodRemain);
+        		}
+        		tracker.pop(); // Tracing meal history
+        		return true;
+        	} else {
+        		return false;
+        	}
+        }
+
+        /*
+         *   The food left after taking the meal, or null if the meal cannot be formed
+         */
+        private List<Food> combine(int mealIndex, List<Food> foodRemain) {
+        	combines++;
+			Meal targetMeal = meals[mealIndex];
+        	List<Food> newFoodRemain = new ArrayList<Food>(foodRemain);
+        	for (Food food: targetMeal.getFood()) {
+        		if (!newFoodRemain.remove(food)) {
+        			return null;
+        		}
+        	}
+        	return newFoodRemain;
+        }
+
+        private boolean cannotSaveMore(int mealIndex, List<Food> foodRemain, long moneySaved) {
+        	if (mode == Mode.EXHAUSTIVE) {
+        		return false;
+        	}
+        	long max = maxMoneySaved;
+        	if (sharedMaxMoneySaved != null) {
+        		max = Math.max(max, sharedMaxMoneySaved.get());
+        	}
+        	if (moneySaved + bestSavingRatio[mealIndex] * foodRemain.size() <= max) {
+        		pruned++;
+        		return true;
+        	}
+        	return false;
+        }
+
+        /*
+         *   Keep the meals in tracker as the best order, if it saves more than
+         *   any order found by this or another task
+         */
+        private void record(long moneySaved, List<Food> foodRemain) {
+        	if (moneySaved <= maxMoneySaved) {
+        		return;
+        	}
+        	if (sharedMaxMoneySaved != null) {
+        		long shared;
+        		do {
+        			shared = sharedMaxMoneySaved.get();
+        			if (moneySaved <= shared) {
+        				return;
+        			}
+        		} while (!sharedMaxMoneySaved.compareAndSet(shared, moneySaved));
+        	}
+        	accepted++;
+        	maxMoneySaved = moneySaved;
+        	mealToBuy = new ArrayList<Meal>(tracker);
+        	foodToBuy = new ArrayList<Food>(foodRemain);
+        }
+    }
+
+    /**
+     * Search the subtree below the meals taken so far. The top levels fork a
+     * task for every meal that can be formed, deeper levels are searched in the
+     * task. Returns the search which found the best order.
      */
-    public boolean tryAllMeal(int mealIndex, List<Food> foodRemain, double moneySaved) {
-    	boolean makeNewCombo = false;
-    	// Controlling nCr times but not nPr times.
-    	// (i.e. i = mealIndex but not i = 0)
-		for (int i = mealIndex; i < meals.length; i++) {
-			makeNewCombo |= tryCombine(i, foodRemain, moneySaved);
-		}
-		return makeNewCombo;
+    private class SearchTask extends RecursiveTask<Search> {
+    	private static final long serialVersionUID = 1L;
+
+    	private final Index index;
+    	private final AtomicLong maxMoneySaved;
+    	private final List<Meal> mealTaken;
+    	private final int mealIndex;
+    	private final List<Food> foodRemain;
+    	private final long moneySaved;
+    	private final int depth;
+
+    	private SearchTask(Index index, AtomicLong maxMoneySaved, List<Meal> mealTaken, int mealIndex,
+    			List<Food> foodRemain, long moneySaved, int depth) {
+    		this.index = index;
+    		this.maxMoneySaved = maxMoneySaved;
+    		this.mealTaken = mealTaken;
+    		this.mealIndex = mealIndex;
+    		this.foodRemain = foodRemain;
+    		this.moneySaved = moneySaved;
+    		this.depth = depth;
+    	}
+
+    	@Override
+    	protected Search compute() {
+    		Search search = new Search(index, maxMoneySaved);
+    		search.tracker.addAll(mealTaken);
+    		if (depth >= PARALLEL_DEPTH) {
+    			if (!search.tryAllMeal(mealIndex, foodRemain, moneySaved)) {
+    				search.record(moneySaved, foodRemain);
+    			}
+    			return search;
+    		}
+    		if (search.cannotSaveMore(mealIndex, foodRemain, moneySaved)) {
+    			return search;
+    		}
+
+    		List<SearchTask> tasks = new ArrayList<SearchTask>();
+    		for (int i = mealIndex; i < index.meals.length; i++) {
+    			List<Food> newFoodRemain = search.combine(i, foodRemain);
+    			if (newFoodRemain != null) {
+    				List<Meal> newMealTaken = new ArrayList<Meal>(mealTaken);
+    				newMealTaken.add(index.meals[i]);
+    				tasks.add(new SearchTask(index, maxMoneySaved, newMealTaken, i, newFoodRemain,
+    						moneySaved + index.mealSaving[i], depth + 1));
+    			}
+    		}
+    		if (tasks.isEmpty()) {
+    			search.record(moneySaved, foodRemain);
+    			return search;
+    		}
+
+    		invokeAll(tasks);
+    		Search best = search;
+    		for (SearchTask task : tasks) {
+    			Search found = task.join();
+    			search.combines += found.combines;
+    			search.pruned += found.pruned;
+    			search.accepted += found.accepted;
+    			if (found.maxMoneySaved > best.maxMoneySaved) {
+    				best = found;
+    			}
+    		}
+    		// the counts of the whole subtree go with the best order
+    		best.combines = search.combines;
+    		best.pruned = search.pruned;
+    		best.accepted = search.accepted;
+    		return best;
+    	}
     }
-    
-    /*
-     *   Find a meal from the remain food.
-     *   If found
-     *     try to combine more by tryAllMeal().
-     *     If can't combine more
-     *     	 this is one possible case
-     *   
+
+    /**
+     * State of a single order() call in SYMMETRIC mode. The wanted food is kept
+     * as a count of each food ordinal, and each meal class in turn takes from
+     * the most templates it can form down to none.
      */
-    public boolean tryCombine(int mealIndex, List<Food> foodRemain, double moneySaved) {
-		Meal targetMeal = meals[mealIndex];
-    	List<Food> newFoodRemain = new ArrayList<Food>(foodRemain);
-    	boolean canCombine = true;
+    private class SymmetricSearch {
+    	private final MealTemplates templates;
+    	private final int[] remain;
+    	private int remainSize;
+
+    	// how many of each member meal are taken, in the search and in the best order
+    	private final int[][] taken;
+    	private final int[][] bestTaken;
+    	private long maxMoneySaved;
+
+    	private int nodes;
+    	private long combines;
+    	private long pruned;
+    	private long accepted;
+    	private boolean interrupted;
 
-    	for (Food food: targetMeal.getFood()) {
-    		if (!newFoodRemain.remove(food)) {
-    			canCombine = false;
-    			break;
+    	private SymmetricSearch(MealTemplates templates, List<Food> wantedFood) {
+    		this.templates = templates;
+    		remain = new int[templates.menu.getFoodSize()];
+    		for (Food food : wantedFood) {
+    			// food not on the menu is in no meal, and is bought alone
+    			int f = templates.menu.findFoodOrdinal(food);
+    			if (f >= 0) {
+    				remain[f]++;
+    				remainSize++;
+    			}
+    		}
+    		taken = new int[templates.size()][];
+    		bestTaken = new int[templates.size()][];
+    		for (int c = 0; c < taken.length; c++) {
+    			taken[c] = new int[templates.members[c].length];
+    			bestTaken[c] = new int[templates.members[c].length];
     		}
     	}
 
-    	if (canCombine) {
-    		moneySaved = moneySaved + menu.getOrderPrice(new ArrayList<Item>(targetMeal.getFood())) - targetMeal.getPrice();
-    		tracker.push(meals[mealIndex]); // Tracing meal history
-			
-    		if (!tryAllMeal(mealIndex, newFoodRemain, moneySaved)) { // Termination Condition
-        		if (moneySaved > maxMoneySaved) {
-        			maxMoneySaved = moneySaved;
-        			mealToBuy = new ArrayList<Meal>(tracker);
-        			foodToBuy = new ArrayList<Food>(newFoodRemain);
-        		}
+    	/*
+    	 *   Try every count of templates of class c and the classes after it
+    	 */
+    	private void search(int c, long moneySaved) {
+    		if (interrupted || ((++nodes & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted())) {
+    			interrupted = true;
+    			return;
     		}
-    		tracker.pop(); // Tracing meal history
-    		return true;
-    	} else {
-    		return false;
+    		if (c == taken.length) {
+    			record(moneySaved);
+    			return;
+    		}
+    		if (moneySaved + templates.bestSavingRatio[c] * remainSize <= maxMoneySaved) {
+    			pruned++;
+    			return;
+    		}
+
+    		int[] food = templates.food[c];
+    		int[] need = templates.need[c];
+    		int[] main = templates.main[c];
+    		int most = Integer.MAX_VALUE;
+    		for (int i = 0; i < food.length; i++) {
+    			most = Math.min(most, remain[food[i]] / need[i]);
+    		}
+    		long mains = 0;
+    		for (int i = 0; i < main.length; i++) {
+    			mains += main[i] < 0 ? Integer.MAX_VALUE : remain[main[i]];
+    		}
+    		most = (int) Math.min(most, mains);
+
+    		int templateSize = 0;
+    		for (int n : need) {
+    			templateSize += n;
+    		}
+
+    		for (int k = most; k >= 0 && !interrupted; k--) {
+    			combines++;
+    			long saved = moneySaved + take(c, k, -1);
+    			remainSize -= k * templateSize;
+    			search(c + 1, saved);
+    			remainSize += k * templateSize;
+    			take(c, k, 1);
+    		}
+    	}
+
+    	/*
+    	 *   Give k templates to the best saving members of class c with their
+    	 *   main wanted, or give them back. Returns the saving of the members.
+    	 */
+    	private long take(int c, int k, int sign) {
+    		int[] food = templates.food[c];
+    		int[] need = templates.need[c];
+    		for (int i = 0; i < food.length; i++) {
+    			remain[food[i]] += sign * k * need[i];
+    		}
+
+    		int[] main = templates.main[c];
+    		long saved = 0;
+    		for (int i = 0; i < main.length; i++) {
+    			int count;
+    			if (sign < 0) {
+    				count = main[i] < 0 ? k : Math.min(k, remain[main[i]]);
+    				taken[c][i] = count;
+    			} else {
+    				count = taken[c][i];
+    				taken[c][i] = 0;
+    			}
+    			if (main[i] >= 0) {
+    				remain[main[i]] += sign * count;
+    				remainSize += sign * count;
+    			}
+    			saved += count * templates.saving[c][i];
+    			k -= count;
+    		}
+    		return saved;
+    	}
+
+    	private void record(long moneySaved) {
+    		if (moneySaved <= maxMoneySaved) {
+    			return;
+    		}
+    		accepted++;
+    		maxMoneySaved = moneySaved;
+    		for (int c = 0; c < taken.length; c++) {
+    			System.arraycopy(taken[c], 0, bestTaken[c], 0, taken[c].length);
+    		}
+    	}
+
+    	/*
+    	 *   The meals of the best order, then the wanted food left in the order
+    	 *   it was wanted
+    	 */
+    	private List<Item> getOrder(List<Food> wantedFood) {
+    		List<Item> mealAndFood = new ArrayList<Item>();
+    		int[] left = new int[remain.length];
+    		for (Food food : wantedFood) {
+    			int f = templates.menu.findFoodOrdinal(food);
+    			if (f >= 0) {
+    				left[f]++;
+    			}
+    		}
+    		for (int c = 0; c < bestTaken.length; c++) {
+    			for (int i = 0; i < bestTaken[c].length; i++) {
+    				int m = templates.members[c][i];
+    				int[] food = templates.menu.getMealFood(m);
+    				int[] need = templates.menu.getMealFoodNeed(m);
+    				for (int n = 0; n < bestTaken[c][i]; n++) {
+    					mealAndFood.add(templates.menu.getMeal(m));
+    					for (int j = 0; j < food.length; j++) {
+    						left[food[j]] -= need[j];
+    					}
+    				}
+    			}
+    		}
+    		for (Food food : wantedFood) {
+    			int f = templates.menu.findFoodOrdinal(food);
+    			if (f < 0) {
+    				mealAndFood.add(food);
+    			} else if (left[f] > 0) {
+    				left[f]--;
+    				mealAndFood.add(food);
+    			}
+    		}
+    		return mealAndFood;
+    	}
+    }
+
+    /**
+     * The meals of a menu in search order, with what they save. Never changed
+     * once built, so a search reads a consistent menu while another is built.
+     */
+    private class Index {
+    	private final Menu menu;
+    	private final Meal[] meals;
+    	private final long[] mealSaving;
+    	private final double[] bestSavingRatio;
+    	// the meals by template, in SYMMETRIC mode only
+    	private final MealTemplates templates;
+
+    	private Index(Menu menu, CompiledMenu compiled) {
+    		this.menu = menu;
+    		if (mode == Mode.SYMMETRIC) {
+    			templates = new MealTemplates(compiled != null ? compiled : new CompiledMenu(menu));
+    		} else {
+    			templates = null;
+    		}
+
+    		// Move all meal to an array for easy access later
+    		// Primitive array Meal[] is used for speed.
+    		ArrayList<Meal> mealList = new ArrayList<Meal>();
+    		Map<String, Item> map = menu.getAllItems();
+    		Set<String> names = map.keySet();
+    		for (String name : names) {
+    			Item item = map.get(name);
+    			if (item instanceof Meal) {
+    				mealList.add((Meal)item);
+    			}
+    		}
+    		Meal[] meals = mealList.toArray(new Meal[mealList.size()]);
+
+    		// Try the meals saving most per food first, so that a good bound is found early
+    		if (mode != Mode.EXHAUSTIVE) {
+    			Arrays.sort(meals, new Comparator<Meal>() {
+    				@Override
+    				public int compare(Meal m1, Meal m2) {
+    					return Double.compare(getSavingRatio(m2), getSavingRatio(m1));
+    				}
+    			});
+    		}
+    		this.meals = meals;
+
+    		mealSaving = new long[meals.length];
+    		for (int i = 0; i < meals.length; i++) {
+    			mealSaving[i] = getSaving(meals[i]);
+    		}
+
+    		// bestSavingRatio[i] is the most a food can save in meals[i..]
+    		bestSavingRatio = new double[meals.length + 1];
+    		for (int i = meals.length - 1; i >= 0; i--) {
+    			bestSavingRatio[i] = Math.max(bestSavingRatio[i + 1], getSavingRatio(meals[i]));
+    		}
+    	}
+
+    	private long getSaving(Meal meal) {
+    		return menu.getOrderPriceCents(new ArrayList<Item>(meal.getFood())) - meal.getPriceCents();
+    	}
+
+    	private double getSavingRatio(Meal meal) {
+    		return Math.max(0, (double) getSaving(meal) / meal.getFood().size());
     	}
     }
 }
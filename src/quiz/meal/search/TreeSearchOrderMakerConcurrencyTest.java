@@ -0,0 +1,96 @@
+package quiz.meal.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import quiz.meal.Menu;
+import quiz.meal.SimpleMenu;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.search.TreeSearchOrderMaker.Mode;
+
+/**
+ * Share one TreeSearchOrderMaker between many threads and check that every
+ * order is the same as the one made by a single thread.
+ */
+public class TreeSearchOrderMakerConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int ORDERS = 200;
+
+    private Menu menu;
+    private List<Item[]> baskets;
+
+    @Before
+    public void setUp() {
+        menu = new SimpleMenu();
+
+        List<Food> foods = new ArrayList<Food>();
+        for (Item item : menu.getAllItems().values()) {
+            if (item instanceof Food) {
+                foods.add((Food) item);
+            }
+        }
+        Food fries = (Food) menu.getItems("中薯條").get(0);
+        Food coke = (Food) menu.getItems("中可樂").get(0);
+
+        Random random = new Random(42);
+        baskets = new ArrayList<Item[]>();
+        for (int i = 0; i < ORDERS; i++) {
+            List<Item> basket = new ArrayList<Item>();
+            int size = 1 + random.nextInt(8);
+            for (int j = 0; j < size; j++) {
+                basket.add(foods.get(random.nextInt(foods.size())));
+                basket.add(random.nextBoolean() ? fries : coke);
+            }
+            baskets.add(basket.toArray(new Item[0]));
+        }
+    }
+
+    @Test
+    public void testExhaustiveSearch() throws Exception {
+        assertSameAsSingleThread(new TreeSearchOrderMaker(menu, Mode.EXHAUSTIVE));
+    }
+
+    @Test
+    public void testBoundedSearch() throws Exception {
+        assertSameAsSingleThread(new TreeSearchOrderMaker(menu, Mode.BOUNDED));
+    }
+
+    private void assertSameAsSingleThread(final TreeSearchOrderMaker maker) throws Exception {
+        List<List<Item>> expected = new ArrayList<List<Item>>();
+        for (Item[] basket : baskets) {
+            expected.add(maker.order(basket));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Item>>> results = new ArrayList<Future<List<Item>>>();
+            for (int round = 0; round < THREADS; round++) {
+                for (final Item[] basket : baskets) {
+                    results.add(executor.submit(new Callable<List<Item>>() {
+                        @Override
+                        public List<Item> call() {
+                            return maker.order(basket);
+                        }
+                    }));
+                }
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(i % baskets.size()), results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
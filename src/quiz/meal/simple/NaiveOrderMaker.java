@@ -3,10 +3,10 @@ package quiz.meal.simple;
 import java.util.Arrays;
 import java.util.List;
 
-import quiz.meal.OrderMaker;
+import quiz.meal.AbstractOrderMaker;
 import quiz.meal.model.Item;
 
-public class NaiveOrderMaker implements OrderMaker {
+public class NaiveOrderMaker extends AbstractOrderMaker {
 
     @Override
     public List<Item> order(Item ... orderItem) {
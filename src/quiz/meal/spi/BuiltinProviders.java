@@ -0,0 +1,153 @@
+package quiz.meal.spi;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.OrderMaker;
+import quiz.meal.csp.CSOrderMaker;
+import quiz.meal.decompose.DecomposingOrderMaker;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.ilp.IntegerProgrammingOrderMaker;
+import quiz.meal.plain.PlainOrderMaker;
+import quiz.meal.search.TreeSearchOrderMaker;
+import quiz.meal.simple.NaiveOrderMaker;
+
+/**
+ * Providers of the order makers of this project, named as in the benchmark.
+ * 
+ * @author siuying
+ */
+public class BuiltinProviders {
+    private BuiltinProviders() {
+    }
+
+    public static class Naive implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "naive";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new NaiveOrderMaker();
+        }
+    }
+
+    public static class Plain implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "plain";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new PlainOrderMaker(menu);
+        }
+    }
+
+    public static class Tree implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "tree";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.EXHAUSTIVE);
+        }
+    }
+
+    public static class TreeBounded implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "tree-bounded";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.BOUNDED);
+        }
+    }
+
+    public static class TreeParallel implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "tree-parallel";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.PARALLEL);
+        }
+    }
+
+    public static class TreeSymmetric implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "tree-symmetric";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.SYMMETRIC);
+        }
+    }
+
+    public static class TreeDecomposed implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "tree-decomposed";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new DecomposingOrderMaker(menu, new TreeSearchOrderMaker(menu, TreeSearchOrderMaker.Mode.EXHAUSTIVE));
+        }
+    }
+
+    public static class CS implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "cs";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new CSOrderMaker(menu, CSOrderMaker.Mode.PER_CALL);
+        }
+    }
+
+    public static class CSSparse implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "cs-sparse";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new CSOrderMaker(menu, CSOrderMaker.Mode.SPARSE);
+        }
+    }
+
+    public static class DP implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "dp";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new DynamicProgrammingOrderMaker(menu);
+        }
+    }
+
+    public static class ILP implements OrderMakerProvider {
+        @Override
+        public String getName() {
+            return "ilp";
+        }
+
+        @Override
+        public OrderMaker create(CompiledMenu menu) {
+            return new IntegerProgrammingOrderMaker(menu);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package quiz.meal.spi;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.OrderMaker;
+
+/**
+ * Create order makers by name from a menu already loaded, so that no order
+ * maker parses food.yml on its own and any of them can be pooled over a custom
+ * menu.
+ * 
+ * The names are those of the OrderMakerProvider found by ServiceLoader, and of
+ * the providers registered later. Order makers created from the same compiled
+ * menu share its index.
+ * 
+ * @author siuying
+ */
+public class OrderMakerFactory {
+    private final Map<String, OrderMakerProvider> providers = new LinkedHashMap<String, OrderMakerProvider>();
+
+    public OrderMakerFactory() {
+        this(OrderMakerFactory.class.getClassLoader());
+    }
+
+    /**
+     * @param loader class loader to find the providers with
+     */
+    public OrderMakerFactory(ClassLoader loader) {
+        for (OrderMakerProvider provider : ServiceLoader.load(OrderMakerProvider.class, loader)) {
+            register(provider);
+        }
+    }
+
+    /**
+     * @param provider provider to use for its name, in place of any other
+     */
+    public synchronized void register(OrderMakerProvider provider) {
+        providers.put(provider.getName(), provider);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no order maker of the name
+     */
+    public OrderMaker create(String name, Menu menu) {
+        return create(name, new CompiledMenu(menu));
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no order maker of the name
+     */
+    public OrderMaker create(String name, CompiledMenu menu) {
+        OrderMakerProvider provider;
+        synchronized (this) {
+            provider = providers.get(name);
+        }
+        if (provider == null) {
+            throw new IllegalArgumentException("Sorry no such order maker: " + name);
+        }
+        return provider.create(menu);
+    }
+
+    /**
+     * @return names of the order makers, in the order they were found
+     */
+    public synchronized Set<String> getNames() {
+        return Collections.unmodifiableSet(new LinkedHashMap<String, OrderMakerProvider>(providers).keySet());
+    }
+}
@@ -0,0 +1,71 @@
+package quiz.meal.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+import quiz.meal.simple.NaiveOrderMaker;
+
+public class OrderMakerFactoryTest {
+
+    @Test
+    public void testBuiltinOrderMakers() {
+        OrderMakerFactory factory = new OrderMakerFactory();
+        assertEquals(Arrays.asList("naive", "plain", "tree", "tree-bounded", "tree-parallel", "tree-symmetric",
+                "tree-decomposed", "cs", "cs-sparse", "dp", "ilp"), Arrays.asList(factory.getNames().toArray()));
+
+        // every order maker orders from the custom menu given
+        CompiledMenu menu = new CompiledMenu(new MenuGenerator(8).generateMenu(10));
+        Menu items = menu.getMenu();
+        OrderMaker dp = factory.create("dp", menu);
+        Item[] basket = new BasketGenerator(menu, 5).randomBasket(6);
+        long best = items.getOrderPriceCents(dp.order(basket));
+        for (String name : factory.getNames()) {
+            List<Item> order = factory.create(name, menu).order(basket);
+            assertEquals(name, OrderHelper.getBasketKey(Arrays.asList(basket)), OrderHelper.getBasketKey(order));
+            if (name.equals("naive") || name.equals("plain")) {
+                assertTrue(name, items.getOrderPriceCents(order) >= best);
+            } else {
+                assertEquals(name, best, items.getOrderPriceCents(order));
+            }
+        }
+    }
+
+    @Test
+    public void testRegister() {
+        OrderMakerFactory factory = new OrderMakerFactory();
+        try {
+            factory.create("mine", new MenuGenerator(1).generateMenu(3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        final OrderMaker mine = new NaiveOrderMaker();
+        factory.register(new OrderMakerProvider() {
+            @Override
+            public String getName() {
+                return "mine";
+            }
+
+            @Override
+            public OrderMaker create(CompiledMenu menu) {
+                return mine;
+            }
+        });
+        assertSame(mine, factory.create("mine", new MenuGenerator(1).generateMenu(3)));
+    }
+}
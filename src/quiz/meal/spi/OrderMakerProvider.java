@@ -0,0 +1,26 @@
+package quiz.meal.spi;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.OrderMaker;
+
+/**
+ * Creates one kind of order maker for OrderMakerFactory. Providers are found by
+ * ServiceLoader, listed in META-INF/services/quiz.meal.spi.OrderMakerProvider.
+ * 
+ * @author siuying
+ */
+public interface OrderMakerProvider {
+
+    /**
+     * @return name the order maker is asked for by, such as "dp"
+     */
+    String getName();
+
+    /**
+     * @param menu loaded and compiled menu, to be used as it is and never
+     * loaded again
+     * @return a new order maker of the menu
+     */
+    OrderMaker create(CompiledMenu menu);
+
+}
@@ -0,0 +1,114 @@
+package quiz.meal.stream;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read baskets of wanted item names one line at a time, so a file of any size
+ * is read in constant memory.
+ * 
+ * A line is either a test case of testcase.yml, whose first list is the wanted
+ * items, or the item names of one basket separated by commas. Blank lines,
+ * comments and the YAML document start are skipped.
+ * 
+ * @author siuying
+ */
+public class BasketReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    public BasketReader(Reader reader) {
+        this.reader = new BufferedReader(reader, BUFFER_SIZE);
+    }
+
+    /**
+     * Read the file through its channel, decoding UTF-8 in a buffer.
+     */
+    public static BasketReader open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new BasketReader(Channels.newReader(raf.getChannel(), "UTF-8"));
+        } catch (RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the wanted item names of the next basket, or null at the end
+     * @throws IOException if the line cannot be read or parsed
+     */
+    public String[] next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#") || line.startsWith("---")) {
+                continue;
+            }
+            if (line.startsWith("-")) {
+                return parseTestCase(line);
+            }
+
+            List<String> names = new ArrayList<String>();
+            for (String name : line.split(",")) {
+                if (name.trim().length() > 0) {
+                    names.add(name.trim());
+                }
+            }
+            return names.toArray(new String[names.size()]);
+        }
+        return null;
+    }
+
+    /**
+     * @return the line number of the last basket read
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /*
+     * - [["name", "name"], [...]]
+     */
+    private String[] parseTestCase(String line) throws IOException {
+        int i = line.indexOf('[');
+        if (i < 0 || line.indexOf('[', i + 1) < 0) {
+            throw new IOException("line " + lineNumber + ": not a test case: " + line);
+        }
+        i = line.indexOf('[', i + 1) + 1;
+
+        List<String> names = new ArrayList<String>();
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == ']') {
+                return names.toArray(new String[names.size()]);
+            } else if (c == '"') {
+                StringBuilder name = new StringBuilder();
+                for (i++; i < line.length() && line.charAt(i) != '"'; i++) {
+                    if (line.charAt(i) == '\\' && i + 1 < line.length()) {
+                        i++;
+                    }
+                    name.append(line.charAt(i));
+                }
+                names.add(name.toString());
+            }
+            i++;
+        }
+        throw new IOException("line " + lineNumber + ": unterminated test case: " + line);
+    }
+}
@@ -0,0 +1,191 @@
+package quiz.meal.stream;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.model.Item;
+
+/**
+ * Order every basket of a BasketReader and write the priced orders as they are
+ * made, for repricing order logs too large to load at once.
+ * 
+ * Baskets are ordered by a fixed number of threads. At most maxPending baskets
+ * are read ahead of the oldest order not yet written; when that many are
+ * pending the reader waits for it, so memory stays bounded however fast the
+ * file is read. Orders are written in the order of the baskets, one line each
+ * in the test case format with the price added:
+ * <pre>
+ *  - [["wanted", ...], ["ordered", ...], 35.50]
+ * </pre>
+ * A basket which cannot be ordered, such as one with an item not on the menu,
+ * is written as a comment and counted as failed.
+ * 
+ * @author siuying
+ */
+public class OrderPipeline {
+    private final Menu menu;
+    private final OrderMaker orderMaker;
+    private final int threads;
+    private final int maxPending;
+
+    /**
+     * @param menu menu of the item names
+     * @param orderMaker order maker, called from many threads
+     * @param threads number of baskets ordered at once
+     * @param maxPending number of baskets read but not written yet
+     */
+    public OrderPipeline(Menu menu, OrderMaker orderMaker, int threads, int maxPending) {
+        if (threads <= 0 || maxPending < threads) {
+            throw new IllegalArgumentException("need threads > 0 and maxPending >= threads: " + threads + ", "
+                    + maxPending);
+        }
+        this.menu = menu;
+        this.orderMaker = orderMaker;
+        this.threads = threads;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Order all baskets of the reader.
+     * 
+     * @return number of baskets ordered and failed
+     */
+    public Result run(BasketReader in, Writer out) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<Line>> pending = new ArrayDeque<Future<Line>>();
+        Result result = new Result();
+        try {
+            out.write("---\n");
+            String[] names;
+            while ((names = in.next()) != null) {
+                if (pending.size() >= maxPending) {
+                    write(pending.removeFirst(), out, result);
+                }
+                pending.addLast(executor.submit(new OrderTask(names, in.getLineNumber())));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), out, result);
+            }
+            out.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private void write(Future<Line> future, Writer out, Result result) throws IOException, InterruptedException {
+        Line line;
+        try {
+            line = future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("order task failed", e.getCause());
+        }
+        out.write(line.text);
+        out.write('\n');
+        if (line.failed) {
+            result.failed++;
+        } else {
+            result.ordered++;
+        }
+    }
+
+    /**
+     * Order a basket and format its line.
+     */
+    private class OrderTask implements Callable<Line> {
+        private final String[] names;
+        private final int lineNumber;
+
+        public OrderTask(String[] names, int lineNumber) {
+            this.names = names;
+            this.lineNumber = lineNumber;
+        }
+
+        @Override
+        public Line call() {
+            try {
+                List<Item> wanted = menu.getItems(names);
+                List<Item> order = orderMaker.order(wanted.toArray(new Item[wanted.size()]));
+                long cents = menu.getOrderPriceCents(order);
+                String price = String.format("%d.%02d", cents / 100, cents % 100);
+                return new Line(" - [" + OrderHelper.toYaml(wanted) + ", " + OrderHelper.toYaml(order) + ", "
+                        + price + "]", false);
+            } catch (RuntimeException e) {
+                String message = e.getMessage() == null ? e.toString() : e.getMessage();
+                return new Line("# line " + lineNumber + ": " + message + " " + Arrays.toString(names), true);
+            }
+        }
+    }
+
+    private static class Line {
+        private final String text;
+        private final boolean failed;
+
+        public Line(String text, boolean failed) {
+            this.text = text;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Number of baskets ordered and failed by a run.
+     */
+    public static class Result {
+        private long ordered;
+        private long failed;
+
+        public long getOrdered() {
+            return ordered;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public String toString() {
+            return String.format("ordered %d, failed %d", ordered, failed);
+        }
+    }
+
+    /**
+     * Reprice a basket file with the shipped menu.
+     * 
+     * @param args basket file, output file, and optionally the number of threads
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: OrderPipeline <baskets> <orders.yml> [threads]");
+            System.exit(1);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Menu menu = new SimpleMenu();
+        OrderPipeline pipeline = new OrderPipeline(menu, new DynamicProgrammingOrderMaker(menu), threads, threads * 64);
+        BasketReader in = BasketReader.open(new File(args[0]));
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), "UTF-8"), 1 << 16);
+        try {
+            System.err.println(pipeline.run(in, out));
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package quiz.meal.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.ho.yaml.Yaml;
+import org.junit.Before;
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.Menu;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.model.Item;
+
+public class OrderPipelineTest {
+    private Menu menu;
+    private OrderMaker orderMaker;
+
+    @Before
+    public void setUp() {
+        menu = new SimpleMenu();
+        orderMaker = new DynamicProgrammingOrderMaker(menu);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTestCases() throws Exception {
+        BasketReader in = new BasketReader(new InputStreamReader(OrderMaker.class.getResourceAsStream("testcase.yml"),
+                "UTF-8"));
+        StringWriter out = new StringWriter();
+        OrderPipeline.Result result = new OrderPipeline(menu, orderMaker, 4, 4).run(in, out);
+
+        List<List<List<String>>> testCases = (List<List<List<String>>>) Yaml.load(OrderMaker.class
+                .getResourceAsStream("testcase.yml"));
+        List<List<Object>> orders = (List<List<Object>>) Yaml.load(out.toString());
+        assertEquals(testCases.size(), result.getOrdered());
+        assertEquals(0, result.getFailed());
+        assertEquals(testCases.size(), orders.size());
+        for (int i = 0; i < testCases.size(); i++) {
+            assertEquals(testCases.get(i).get(0), orders.get(i).get(0));
+            long expected = menu.getOrderPriceCents(menu.getItems(testCases.get(i).get(1).toArray(new String[0])));
+            assertEquals(expected, Math.round(((Number) orders.get(i).get(2)).doubleValue() * 100));
+        }
+    }
+
+    @Test
+    public void testBasketPerLine() throws Exception {
+        File file = File.createTempFile("baskets", ".txt");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            writer.write("雙層芝士孖堡, 中薯條, 中可樂\n\n# not a basket\n麥樂雞 (6件),不是食物\n中薯條\n");
+            writer.close();
+
+            BasketReader in = BasketReader.open(file);
+            StringWriter out = new StringWriter();
+            OrderPipeline.Result result = new OrderPipeline(menu, orderMaker, 2, 2).run(in, out);
+            in.close();
+
+            assertEquals(2, result.getOrdered());
+            assertEquals(1, result.getFailed());
+            String[] lines = out.toString().split("\n");
+            assertEquals(4, lines.length);
+            assertEquals(" - [[\"雙層芝士孖堡\", \"中薯條\", \"中可樂\"], [\"雙層芝士孖堡套餐\"], 23.80]", lines[1]);
+            assertTrue(lines[2], lines[2].startsWith("# line 4: Sorry"));
+            assertEquals(" - [[\"中薯條\"], [\"中薯條\"], 8.80]", lines[3]);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFailureWithoutMessage() throws Exception {
+        OrderMaker broken = new AbstractOrderMaker() {
+            @Override
+            public List<Item> order(Item... wantedItems) {
+                throw new NullPointerException();
+            }
+        };
+        StringWriter out = new StringWriter();
+        OrderPipeline.Result result = new OrderPipeline(menu, broken, 1, 1).run(
+                new BasketReader(new StringReader("中薯條\n")), out);
+        assertEquals(1, result.getFailed());
+        assertTrue(out.toString(), out.toString().contains("# line 1: java.lang.NullPointerException [中薯條]"));
+    }
+
+    @Test
+    public void testParseTestCase() throws Exception {
+        BasketReader in = new BasketReader(new StringReader("---\n - [[\"a \\\"b\\\"\", \"c, d\"], [\"x\"]]\n"));
+        assertArrayEquals(new String[] { "a \"b\"", "c, d" }, in.next());
+        assertNull(in.next());
+    }
+
+    @Test
+    public void testBoundedPending() throws Exception {
+        StringBuilder baskets = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            baskets.append("雙層芝士孖堡, 中薯條, 中可樂, 至尊漢堡\n");
+        }
+
+        final int maxPending = 8;
+        final int[] written = new int[1];
+        final Writer out = new StringWriter() {
+            @Override
+            public void write(int c) {
+                super.write(c);
+                if (c == '\n') {
+                    written[0]++;
+                }
+            }
+        };
+        BasketReader in = new BasketReader(new StringReader(baskets.toString())) {
+            private int read;
+
+            @Override
+            public String[] next() throws IOException {
+                assertTrue(read - written[0] <= maxPending);
+                read++;
+                return super.next();
+            }
+        };
+        OrderPipeline.Result result = new OrderPipeline(menu, orderMaker, 3, maxPending).run(in, out);
+        assertEquals(500, result.getOrdered());
+    }
+}
@@ -0,0 +1,395 @@
+package quiz.meal.table;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.model.Food;
+import quiz.meal.model.Item;
+import quiz.meal.model.Meal;
+
+/**
+ * The order of every basket of up to maxSize food of a menu, made once by a
+ * reference order maker.
+ *
+ * A basket is keyed by its food ordinals in ascending order, each plus one and
+ * packed in as many bits as the largest ordinal needs, so a key fits a long
+ * when maxSize times the bits is at most 63. The keys are kept sorted and
+ * looked up by binary search. The order of the i-th key is items[offset[i]..
+ * offset[i + 1]), meal ordinals as they are and food ordinals plus the number
+ * of meals.
+ *
+ * The binary format is big-endian:
+ * <pre>
+ * int    MAGIC, int VERSION
+ * long   hash of the menu names and prices
+ * int    number of food, int number of meals, int maxSize
+ * int    number of keys n
+ * long   key... (n), int offset... (n + 1), int item...
+ * </pre>
+ *
+ * @author siuying
+ */
+public class OrderTable {
+    public static final int MAGIC = 0x514f5442;
+    public static final int VERSION = 1;
+    // most baskets a table is built for
+    private static final int MAX_KEYS = 1 << 24;
+    // baskets given to the reference order maker at once while building
+    private static final int BATCH_SIZE = 4096;
+
+    private final CompiledMenu menu;
+    private final int maxSize;
+    private final int bits;
+    private final long[] keys;
+    private final int[] offset;
+    private final int[] items;
+
+    private OrderTable(CompiledMenu menu, int maxSize, long[] keys, int[] offset, int[] items) {
+        this.menu = menu;
+        this.maxSize = maxSize;
+        this.bits = getBits(menu, maxSize);
+        this.keys = keys;
+        this.offset = offset;
+        this.items = items;
+    }
+
+    /**
+     * Order every basket of up to maxSize food with the reference order maker.
+     *
+     * @param reference order maker using the same menu
+     * @throws IllegalArgumentException if there are too many baskets
+     */
+    public static OrderTable build(CompiledMenu menu, OrderMaker reference, int maxSize) {
+        int bits = getBits(menu, maxSize);
+        long count = 1;
+        for (int k = 1; k <= maxSize; k++) {
+            // baskets of up to k food, C(food + k, k)
+            count = count * (menu.getFoodSize() + k) / k;
+            if (count > MAX_KEYS) {
+                throw new IllegalArgumentException("Sorry the table is too large, please use a smaller basket size!");
+            }
+        }
+
+        Map<Item, Integer> mealOrdinal = new HashMap<Item, Integer>();
+        for (int m = 0; m < menu.getMealSize(); m++) {
+            mealOrdinal.put(menu.getMeal(m), m);
+        }
+
+        // every basket but the empty one
+        int n = (int) count - 1;
+        long[] keys = new long[n];
+        int[] offset = new int[n + 1];
+        int[] items = new int[n];
+        int done = 0;
+
+        // keys of fewer food are smaller, and baskets of the same size in
+        // lexicographic order of their ascending ordinals have ascending keys
+        List<Item[]> batch = new ArrayList<Item[]>(BATCH_SIZE);
+        int[] basket = new int[maxSize];
+        for (int size = 1; size <= maxSize && menu.getFoodSize() > 0; size++) {
+            Arrays.fill(basket, 0, size, 0);
+            while (true) {
+                Item[] foods = new Item[size];
+                long key = 0;
+                for (int i = 0; i < size; i++) {
+                    foods[i] = menu.getFood(basket[i]);
+                    key = key << bits | (basket[i] + 1);
+                }
+                keys[done + batch.size()] = key;
+                batch.add(foods);
+                if (batch.size() == BATCH_SIZE) {
+                    items = addOrders(menu, mealOrdinal, reference.orderAll(batch), done, offset, items);
+                    done += batch.size();
+                    batch.clear();
+                }
+
+                // next basket of this size
+                int i = size - 1;
+                while (i >= 0 && basket[i] == menu.getFoodSize() - 1) {
+                    i--;
+                }
+                if (i < 0) {
+                    break;
+                }
+                basket[i]++;
+                Arrays.fill(basket, i + 1, size, basket[i]);
+            }
+        }
+        items = addOrders(menu, mealOrdinal, reference.orderAll(batch), done, offset, items);
+        items = Arrays.copyOf(items, offset[n]);
+        return new OrderTable(menu, maxSize, keys, offset, items);
+    }
+
+    /**
+     * @throws IOException if the table is not in the binary format, is
+     * truncated or corrupt, or was built for another menu
+     */
+    public static OrderTable read(CompiledMenu menu, InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not an order table");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported order table version: " + version);
+        }
+        if (in.readLong() != getMenuHash(menu) || in.readInt() != menu.getFoodSize()
+                || in.readInt() != menu.getMealSize()) {
+            throw new IOException("order table of another menu");
+        }
+
+        // a truncated file ends in an EOFException, the rest is checked before use
+        int maxSize = in.readInt();
+        try {
+            getBits(menu, maxSize);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupt order table: basket size " + maxSize + " at offset 24");
+        }
+        int n = in.readInt();
+        if (n < 0 || n > MAX_KEYS) {
+            throw new IOException("corrupt order table: " + n + " keys at offset 28");
+        }
+
+        long position = 32;
+        long[] keys = new long[n];
+        for (int i = 0; i < keys.length; i++, position += 8) {
+            keys[i] = in.readLong();
+            if (i > 0 && keys[i] <= keys[i - 1]) {
+                throw new IOException("corrupt order table: key out of order at offset " + position);
+            }
+        }
+        // an order has no more items than its basket has food
+        int[] offset = new int[n + 1];
+        for (int i = 0; i < offset.length; i++, position += 4) {
+            offset[i] = in.readInt();
+            int previous = i == 0 ? 0 : offset[i - 1];
+            if (offset[i] < previous || offset[i] - previous > maxSize || (i == 0 && offset[i] != 0)) {
+                throw new IOException("corrupt order table: item offset " + offset[i] + " at offset " + position);
+            }
+        }
+        int itemSize = menu.getMealSize() + menu.getFoodSize();
+        int[] items = new int[offset[n]];
+        for (int i = 0; i < items.length; i++, position += 4) {
+            items[i] = in.readInt();
+            if (items[i] < 0 || items[i] >= itemSize) {
+                throw new IOException("corrupt order table: item " + items[i] + " at offset " + position);
+            }
+        }
+        return new OrderTable(menu, maxSize, keys, offset, items);
+    }
+
+    public static OrderTable read(CompiledMenu menu, File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return read(menu, in);
+        } finally {
+            in.close();
+        }
+    }
+
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(getMenuHash(menu));
+        out.writeInt(menu.getFoodSize());
+        out.writeInt(menu.getMealSize());
+        out.writeInt(maxSize);
+        out.writeInt(keys.length);
+        for (long key : keys) {
+            out.writeLong(key);
+        }
+        for (int o : offset) {
+            out.writeInt(o);
+        }
+        for (int item : items) {
+            out.writeInt(item);
+        }
+        out.flush();
+    }
+
+    public void write(File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the order of the wanted items, or null if they are more than
+     * maxSize food or not all on the menu
+     */
+    public List<Item> lookup(Item... wantedItems) {
+        List<Food> wantedFood = OrderHelper.getItemAsFoodList(Arrays.asList(wantedItems));
+        if (wantedFood.size() > maxSize) {
+            return null;
+        }
+
+        int[] ordinals = new int[wantedFood.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = menu.findFoodOrdinal(wantedFood.get(i));
+            if (ordinals[i] < 0) {
+                return null;
+            }
+        }
+        Arrays.sort(ordinals);
+        long key = 0;
+        for (int f : ordinals) {
+            key = key << bits | (f + 1);
+        }
+
+        int i = Arrays.binarySearch(keys, key);
+        if (i < 0) {
+            return null;
+        }
+        List<Item> order = new ArrayList<Item>(offset[i + 1] - offset[i]);
+        for (int j = offset[i]; j < offset[i + 1]; j++) {
+            int item = items[j];
+            order.add(item < menu.getMealSize() ? menu.getMeal(item) : menu.getFood(item - menu.getMealSize()));
+        }
+        return order;
+    }
+
+    /**
+     * @return the most food of a basket in the table
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of baskets in the table
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    public CompiledMenu getMenu() {
+        return menu;
+    }
+
+    /**
+     * Build the table of a menu, ordered by DynamicProgrammingOrderMaker.
+     *
+     * @param args YAML menu file or "-" for the shipped food.yml, the most food
+     * of a basket, and the table file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: OrderTable <menu.yml | -> <max basket size> <table file>");
+            System.exit(1);
+        }
+
+        Menu menu;
+        if ("-".equals(args[0])) {
+            menu = new SimpleMenu();
+        } else {
+            InputStream in = new FileInputStream(args[0]);
+            try {
+                menu = new SimpleMenu(in);
+            } finally {
+                in.close();
+            }
+        }
+        CompiledMenu compiled = new CompiledMenu(menu);
+        OrderTable table = build(compiled, new DynamicProgrammingOrderMaker(compiled), Integer.parseInt(args[1]));
+        table.write(new File(args[2]));
+        System.out.println(table.size() + " baskets, " + table.items.length + " order items");
+    }
+
+    private static int getBits(CompiledMenu menu, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("basket size must be positive: " + maxSize);
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(menu.getFoodSize());
+        if (maxSize * bits > 63) {
+            throw new IllegalArgumentException("Sorry the table is too large, please use a smaller basket size!");
+        }
+        return bits;
+    }
+
+    /**
+     * Encode the orders of the baskets from the first one on into items,
+     * growing it as needed.
+     *
+     * @return the items
+     */
+    private static int[] addOrders(CompiledMenu menu, Map<Item, Integer> mealOrdinal, List<List<Item>> orders,
+            int first, int[] offset, int[] items) {
+        for (int i = 0; i < orders.size(); i++) {
+            List<Item> order = orders.get(i);
+            int from = offset[first + i];
+            int to = from + order.size();
+            if (to > items.length) {
+                items = Arrays.copyOf(items, Math.max(to, items.length * 2));
+            }
+            for (Item item : order) {
+                items[from++] = encode(menu, mealOrdinal, item);
+            }
+            offset[first + i + 1] = to;
+        }
+        return items;
+    }
+
+    private static int encode(CompiledMenu menu, Map<Item, Integer> mealOrdinal, Item item) {
+        if (item instanceof Meal) {
+            Integer m = mealOrdinal.get(item);
+            if (m == null) {
+                throw new IllegalArgumentException("Sorry no such item on menu, please try others!");
+            }
+            return m;
+        }
+        return menu.getMealSize() + menu.getFoodOrdinal((Food) item);
+    }
+
+    /*
+     * FNV-1a of the names and prices of the menu, in ordinal order
+     */
+    private static long getMenuHash(CompiledMenu menu) {
+        long hash = 0xcbf29ce484222325L;
+        for (int f = 0; f < menu.getFoodSize(); f++) {
+            hash = mix(hash, menu.getFood(f).getName().hashCode());
+            hash = mix(hash, menu.getFoodPrice(f));
+        }
+        for (int m = 0; m < menu.getMealSize(); m++) {
+            hash = mix(hash, menu.getMeal(m).getName().hashCode());
+            hash = mix(hash, menu.getMealPrice(m));
+            int[] food = menu.getMealFood(m);
+            int[] need = menu.getMealFoodNeed(m);
+            for (int i = 0; i < food.length; i++) {
+                hash = mix(hash, food[i]);
+                hash = mix(hash, need[i]);
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (8 * i)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,87 @@
+package quiz.meal.table;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import quiz.meal.AbstractOrderMaker;
+import quiz.meal.Menu;
+import quiz.meal.MenuListener;
+import quiz.meal.OrderMaker;
+import quiz.meal.model.Item;
+
+/**
+ * Look the order of small baskets up in an order table, and make the order of
+ * any other basket with another order maker.
+ *
+ * The table is dropped when the menu publishes new items, since its orders are
+ * of the old ones, and every basket goes to the order maker until a table of
+ * the new menu is set.
+ *
+ * @author siuying
+ */
+public class TableOrderMaker extends AbstractOrderMaker implements MenuListener {
+    private final OrderMaker orderMaker;
+    private volatile OrderTable table;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param table order table, or null for none yet
+     * @param orderMaker order maker of the baskets not in the table
+     */
+    public TableOrderMaker(OrderTable table, OrderMaker orderMaker) {
+        this.table = table;
+        this.orderMaker = orderMaker;
+    }
+
+    @Override
+    public List<Item> order(Item... wantedItems) {
+        OrderTable table = this.table;
+        if (table != null) {
+            List<Item> order = table.lookup(wantedItems);
+            if (order != null) {
+                hits.incrementAndGet();
+                return order;
+            }
+        }
+        misses.incrementAndGet();
+        return orderMaker.order(wantedItems);
+    }
+
+    /**
+     * Drop the table of the old menu.
+     */
+    @Override
+    public void menuChanged(Menu menu) {
+        table = null;
+    }
+
+    /**
+     * @return the order table, or null if there is none
+     */
+    public OrderTable getTable() {
+        return table;
+    }
+
+    /**
+     * @param table order table of the menu now in use, or null for none
+     */
+    public void setTable(OrderTable table) {
+        this.table = table;
+    }
+
+    /**
+     * @return number of orders looked up in the table
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of orders made by the order maker
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
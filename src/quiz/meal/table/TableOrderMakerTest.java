@@ -0,0 +1,129 @@
+package quiz.meal.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import quiz.meal.AbstractOrderMakerTest;
+import quiz.meal.CompiledMenu;
+import quiz.meal.Menu;
+import quiz.meal.OrderHelper;
+import quiz.meal.OrderMaker;
+import quiz.meal.SimpleMenu;
+import quiz.meal.dp.DynamicProgrammingOrderMaker;
+import quiz.meal.gen.BasketGenerator;
+import quiz.meal.gen.MenuGenerator;
+import quiz.meal.model.Item;
+
+public class TableOrderMakerTest extends AbstractOrderMakerTest {
+    public OrderMaker getOrderMaker() {
+        CompiledMenu menu = new CompiledMenu(new SimpleMenu());
+        OrderMaker dp = new DynamicProgrammingOrderMaker(menu);
+        return new TableOrderMaker(OrderTable.build(menu, dp, 4), dp);
+    }
+
+    @Test
+    public void testSameAsReference() throws IOException {
+        CompiledMenu menu = new CompiledMenu(new SimpleMenu());
+        OrderMaker dp = new DynamicProgrammingOrderMaker(menu);
+        OrderTable built = OrderTable.build(menu, dp, 6);
+        // baskets of up to 6 of 13 food, C(19, 6) - 1
+        assertEquals(27131, built.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        built.write(out);
+        OrderTable table = OrderTable.read(menu, new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(built.size(), table.size());
+        assertEquals(6, table.getMaxSize());
+
+        TableOrderMaker maker = new TableOrderMaker(table, dp);
+        BasketGenerator generator = new BasketGenerator(menu, 17);
+        for (int i = 0; i < 200; i++) {
+            Item[] wanted = generator.randomBasket(1 + i % 8);
+            List<Item> order = maker.order(wanted);
+            assertEquals(menu.getMenu().getOrderPriceCents(dp.order(wanted)), menu.getMenu().getOrderPriceCents(order));
+            assertEquals(OrderHelper.getBasketKey(Arrays.asList(wanted)), OrderHelper.getBasketKey(order));
+        }
+        assertEquals(150, maker.getHits());
+        assertEquals(50, maker.getMisses());
+    }
+
+    @Test
+    public void testCorruptTable() throws IOException {
+        CompiledMenu menu = new CompiledMenu(new SimpleMenu());
+        OrderTable table = OrderTable.build(menu, new DynamicProgrammingOrderMaker(menu), 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table.write(out);
+        byte[] whole = out.toByteArray();
+
+        for (int length = 0; length < whole.length; length++) {
+            assertUnreadable(menu, Arrays.copyOf(whole, length));
+        }
+
+        // basket size, key count, second key made 0, first item offset, last item
+        int keysEnd = 32 + 8 * table.size();
+        int[] offsets = { 24, 28, 44, keysEnd, whole.length - 4 };
+        int[] values = { -1, Integer.MAX_VALUE, 0, 1, -1 };
+        int[] reported = { 24, 28, 40, keysEnd, whole.length - 4 };
+        for (int i = 0; i < offsets.length; i++) {
+            byte[] corrupt = whole.clone();
+            ByteBuffer.wrap(corrupt).putInt(offsets[i], values[i]);
+            String message = assertUnreadable(menu, corrupt);
+            assertTrue(message, message.contains("offset " + reported[i]));
+        }
+    }
+
+    private static String assertUnreadable(CompiledMenu menu, byte[] bytes) {
+        try {
+            OrderTable.read(menu, new ByteArrayInputStream(bytes));
+            fail("a table of " + bytes.length + " bytes must not load");
+            return null;
+        } catch (IOException e) {
+            return String.valueOf(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testOtherMenu() throws IOException {
+        CompiledMenu menu = new CompiledMenu(new SimpleMenu());
+        OrderTable table = OrderTable.build(menu, new DynamicProgrammingOrderMaker(menu), 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table.write(out);
+
+        Menu other = new MenuGenerator(3).generateMenu(5);
+        try {
+            OrderTable.read(new CompiledMenu(other), new ByteArrayInputStream(out.toByteArray()));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        // the food of another menu is not in the table
+        assertNull(table.lookup(other.getItems("main-0").toArray(new Item[0])));
+    }
+
+    @Test
+    public void testMenuChanged() {
+        Menu menu = new SimpleMenu();
+        CompiledMenu compiled = new CompiledMenu(menu);
+        OrderMaker dp = new DynamicProgrammingOrderMaker(compiled);
+        TableOrderMaker maker = new TableOrderMaker(OrderTable.build(compiled, dp, 2), dp);
+        maker.order(menu.getItems("中薯條").toArray(new Item[0]));
+        assertEquals(1, maker.getHits());
+
+        maker.menuChanged(menu);
+        assertNull(maker.getTable());
+        maker.order(menu.getItems("中薯條").toArray(new Item[0]));
+        assertEquals(1, maker.getMisses());
+    }
+}